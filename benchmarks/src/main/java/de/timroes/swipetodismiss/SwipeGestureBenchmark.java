@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a stream of touch events through {@link SwipeGesture}. The score
+ * is the throughput per touch event. By default the stream is synthetic, pass
+ * the file of a serialized {@link TouchTrace} with {@code -p trace=<file>} to
+ * replay recorded gestures instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwipeGestureBenchmark {
+
+    private static final int GESTURES = 100;
+
+    @Param({""})
+    public String trace;
+
+    private TouchStreams mStream;
+    private SwipeGesture mGesture;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (trace.isEmpty()) {
+            mStream = TouchStreams.generate(GESTURES, 42);
+            mGesture = new SwipeGesture(24, 150, 24000);
+            mGesture.setWidth(TouchStreams.WIDTH);
+        } else {
+            TouchTrace recorded = TouchTrace.fromByteArray(Files.readAllBytes(new File(trace).toPath()));
+            mStream = TouchStreams.fromTrace(recorded, GESTURES * TouchStreams.EVENTS_PER_GESTURE);
+            mGesture = recorded.newGesture();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GESTURES * TouchStreams.EVENTS_PER_GESTURE)
+    public void replay(Blackhole blackhole) {
+        TouchStreams stream = mStream;
+        for (int i = 0; i < stream.size; i++) {
+            SwipeGesture.Decision decision;
+            switch (stream.actions[i]) {
+                case TouchTrace.ACTION_DOWN:
+                    decision = mGesture.down(stream.x[i], stream.y[i], stream.times[i]);
+                    break;
+                case TouchTrace.ACTION_MOVE:
+                    decision = mGesture.move(stream.x[i], stream.y[i], stream.times[i]);
+                    break;
+                case TouchTrace.ACTION_UP:
+                    decision = mGesture.up(stream.x[i], stream.y[i], stream.times[i]);
+                    break;
+                default:
+                    decision = mGesture.cancel();
+                    break;
+            }
+            blackhole.consume(decision);
+        }
+    }
+
+}
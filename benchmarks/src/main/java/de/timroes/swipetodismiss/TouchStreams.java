@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import java.util.Random;
+
+/**
+ * A stream of touch events replayed by the benchmarks, using the
+ * {@code ACTION_*} constants of {@link TouchTrace}.
+ * <p/>
+ * {@link #generate(int, long)} synthesizes the kinds of gestures done on a
+ * list: slow drags and fast flings to both sides, vertical scrolls, taps and
+ * swipes changing their direction. These are not recorded, every gesture has
+ * the same number of events and touch events arrive every 8 ms. To benchmark
+ * real gestures, record them with a {@link TouchTrace} and load them with
+ * {@link #fromTrace(TouchTrace, int)}.
+ */
+final class TouchStreams {
+
+    static final int EVENTS_PER_GESTURE = 32;
+    static final int WIDTH = 1080;
+
+    private static final int MOVES = EVENTS_PER_GESTURE - 2;
+    private static final int FRAME_TIME = 8;
+
+    final byte[] actions;
+    final float[] x;
+    final float[] y;
+    final long[] times;
+    final int size;
+
+    private TouchStreams(int size) {
+        this.size = size;
+        actions = new byte[size];
+        x = new float[size];
+        y = new float[size];
+        times = new long[size];
+    }
+
+    /**
+     * Generates a stream of gestures.
+     *
+     * @param gestures The number of gestures.
+     * @param seed     The seed of the jitter added to the coordinates.
+     * @return The generated stream.
+     */
+    static TouchStreams generate(int gestures, long seed) {
+        Random random = new Random(seed);
+        TouchStreams stream = new TouchStreams(gestures * EVENTS_PER_GESTURE);
+        long time = 0;
+        int index = 0;
+        for (int g = 0; g < gestures; g++) {
+            float startX = 200 + random.nextInt(WIDTH - 400);
+            float startY = 100 + random.nextInt(1500);
+            int kind = g % 5;
+            for (int i = 0; i < EVENTS_PER_GESTURE; i++) {
+                float dx;
+                float dy = random.nextFloat() * 4 - 2;
+                switch (kind) {
+                    case 0:
+                        // Slow drag to the right, beyond half of the width
+                        dx = i * 20;
+                        break;
+                    case 1:
+                        // Fast fling to the left
+                        dx = -i * 12;
+                        break;
+                    case 2:
+                        // Vertical scroll
+                        dx = random.nextFloat() * 6 - 3;
+                        dy = i * 25;
+                        break;
+                    case 3:
+                        // Tap
+                        dx = random.nextFloat() * 2 - 1;
+                        break;
+                    default:
+                        // Swipe changing its direction
+                        dx = (float) (150 * Math.sin(i / 5.0));
+                        break;
+                }
+                stream.actions[index] = i == 0 ? TouchTrace.ACTION_DOWN
+                        : i <= MOVES ? TouchTrace.ACTION_MOVE : TouchTrace.ACTION_UP;
+                stream.x[index] = startX + dx;
+                stream.y[index] = startY + dy;
+                stream.times[index] = time;
+                time += FRAME_TIME;
+                index++;
+            }
+            time += 500;
+        }
+        return stream;
+    }
+
+    /**
+     * Creates a stream of the events recorded in a trace. The events are
+     * repeated until the stream has the given size, so the scores of
+     * different traces can be compared.
+     *
+     * @param trace The recorded events.
+     * @param size  The number of events in the stream.
+     * @return The stream of the recorded events.
+     */
+    static TouchStreams fromTrace(TouchTrace trace, int size) {
+        if (trace.size() == 0) {
+            throw new IllegalArgumentException("The trace is empty.");
+        }
+        TouchStreams stream = new TouchStreams(size);
+        long duration = trace.getTime(trace.size() - 1) - trace.getTime(0) + 500;
+        for (int index = 0; index < size; index++) {
+            int i = index % trace.size();
+            stream.actions[index] = trace.getAction(i);
+            stream.x[index] = trace.getX(i);
+            stream.y[index] = trace.getY(i);
+            // Keep the time increasing across the repetitions
+            stream.times[index] = trace.getTime(i) + (index / trace.size()) * duration;
+        }
+        return stream;
+    }
+
+}
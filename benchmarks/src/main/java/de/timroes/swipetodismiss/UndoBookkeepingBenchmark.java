@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.DismissList.UndoMode;
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores, undoes and discards undos with the {@link UndoBookkeeper} of an
+ * {@link UndoCoordinator} in each {@link UndoMode}: a burst of dismisses, one
+ * click on the undo button and the popup hiding afterwards. The score is the
+ * throughput per dismiss.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UndoBookkeepingBenchmark {
+
+    private static final int DISMISSES = 20;
+
+    @Param({"SINGLE_UNDO", "MULTI_UNDO", "COLLAPSED_UNDO"})
+    public UndoMode mode;
+
+    private UndoBookkeeper mUndoActions;
+    private final CountingUndoable[] mUndoables = new CountingUndoable[DISMISSES];
+
+    private static class CountingUndoable extends Undoable {
+
+        int mUndos;
+        int mDiscards;
+
+        @Override
+        public void undo() {
+            mUndos++;
+        }
+
+        @Override
+        public void discard() {
+            mDiscards++;
+        }
+
+    }
+
+    @Setup
+    public void setUp() {
+        mUndoActions = new UndoBookkeeper(mode, new DiscardQueue());
+        for (int i = 0; i < DISMISSES; i++) {
+            mUndoables[i] = new CountingUndoable();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DISMISSES)
+    public int dismissUndoAndHide() {
+        for (int i = 0; i < DISMISSES; i++) {
+            mUndoActions.beforeDismiss();
+            mUndoActions.add(mUndoables[i]);
+        }
+
+        mUndoActions.undo();
+
+        int remaining = mUndoActions.size();
+        mUndoActions.discardAll();
+        return remaining;
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.View;
+
+import com.nineoldandroids.view.ViewHelper;
+import com.nineoldandroids.view.ViewPropertyAnimator;
+
+/**
+ * Abstracts the view property and animation calls used by {@link SwipeDismissList}.
+ * On API level 12 and above the framework animation classes are used directly,
+ * on older devices the calls are passed to NineOldAndroids.
+ */
+abstract class AnimationCompat {
+
+    /**
+     * An animation that calls back on every frame until it is stopped.
+     */
+    interface Ticker {
+
+        void start();
+
+        void stop();
+
+        boolean isStarted();
+
+    }
+
+    /**
+     * Returns the implementation to use on this device.
+     *
+     * @param preferNative Whether to use the framework animations if the
+     *                     device supports them.
+     * @return The implementation to use.
+     */
+    static AnimationCompat get(boolean preferNative) {
+        if (preferNative && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+            return new NativeAnimations();
+        }
+        return new NineOldAnimations();
+    }
+
+    abstract void setTranslationX(View view, float translationX);
+
+    abstract void setTranslationY(View view, float translationY);
+
+    abstract float getTranslationY(View view);
+
+    abstract void setAlpha(View view, float alpha);
+
+    /**
+     * Animates the translation and alpha of a view.
+     *
+     * @param view         The view to animate.
+     * @param translationX The target translation.
+     * @param alpha        The target alpha.
+     * @param duration     The duration of the animation in milliseconds.
+     * @param endAction    Run when the animation ended, may be {@code null}.
+     */
+    abstract void animate(View view, float translationX, float alpha, long duration,
+                          Runnable endAction);
+
+    /**
+     * Creates a new {@link Ticker} calling the given action on every frame.
+     *
+     * @param duration The duration of one animation cycle in milliseconds.
+     * @param onFrame  The action to run on every frame.
+     * @return The new (not yet started) ticker.
+     */
+    abstract Ticker newTicker(long duration, Runnable onFrame);
+
+    private static class NineOldAnimations extends AnimationCompat {
+
+        @Override
+        void setTranslationX(View view, float translationX) {
+            ViewHelper.setTranslationX(view, translationX);
+        }
+
+        @Override
+        void setTranslationY(View view, float translationY) {
+            ViewHelper.setTranslationY(view, translationY);
+        }
+
+        @Override
+        float getTranslationY(View view) {
+            return ViewHelper.getTranslationY(view);
+        }
+
+        @Override
+        void setAlpha(View view, float alpha) {
+            ViewHelper.setAlpha(view, alpha);
+        }
+
+        @Override
+        void animate(View view, float translationX, float alpha, long duration,
+                     final Runnable endAction) {
+            ViewPropertyAnimator.animate(view)
+                    .translationX(translationX)
+                    .alpha(alpha)
+                    .setDuration(duration)
+                    .setListener(endAction == null ? null
+                            : new com.nineoldandroids.animation.AnimatorListenerAdapter() {
+                        @Override
+                        public void onAnimationEnd(com.nineoldandroids.animation.Animator animation) {
+                            endAction.run();
+                        }
+                    });
+        }
+
+        @Override
+        Ticker newTicker(long duration, final Runnable onFrame) {
+            final com.nineoldandroids.animation.ValueAnimator animator =
+                    com.nineoldandroids.animation.ValueAnimator.ofFloat(0f, 1f);
+            animator.setDuration(duration);
+            animator.setRepeatCount(com.nineoldandroids.animation.ValueAnimator.INFINITE);
+            animator.addUpdateListener(new com.nineoldandroids.animation.ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(com.nineoldandroids.animation.ValueAnimator animation) {
+                    onFrame.run();
+                }
+            });
+            return new Ticker() {
+                public void start() {
+                    animator.start();
+                }
+
+                public void stop() {
+                    animator.cancel();
+                }
+
+                public boolean isStarted() {
+                    return animator.isStarted();
+                }
+            };
+        }
+
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+    private static class NativeAnimations extends AnimationCompat {
+
+        @Override
+        void setTranslationX(View view, float translationX) {
+            view.setTranslationX(translationX);
+        }
+
+        @Override
+        void setTranslationY(View view, float translationY) {
+            view.setTranslationY(translationY);
+        }
+
+        @Override
+        float getTranslationY(View view) {
+            return view.getTranslationY();
+        }
+
+        @Override
+        void setAlpha(View view, float alpha) {
+            view.setAlpha(alpha);
+        }
+
+        @Override
+        void animate(View view, float translationX, float alpha, long duration,
+                     final Runnable endAction) {
+            android.view.ViewPropertyAnimator animator = view.animate()
+                    .translationX(translationX)
+                    .alpha(alpha)
+                    .setDuration(duration)
+                    .setListener(endAction == null ? null
+                            : new android.animation.AnimatorListenerAdapter() {
+                        @Override
+                        public void onAnimationEnd(android.animation.Animator animation) {
+                            endAction.run();
+                        }
+                    });
+            // Fading a view is cheaper on a hardware layer
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                animator.withLayer();
+            }
+        }
+
+        @Override
+        Ticker newTicker(long duration, final Runnable onFrame) {
+            final android.animation.ValueAnimator animator =
+                    android.animation.ValueAnimator.ofFloat(0f, 1f);
+            animator.setDuration(duration);
+            animator.setRepeatCount(android.animation.ValueAnimator.INFINITE);
+            animator.addUpdateListener(new android.animation.ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(android.animation.ValueAnimator animation) {
+                    onFrame.run();
+                }
+            });
+            return new Ticker() {
+                public void start() {
+                    animator.start();
+                }
+
+                public void stop() {
+                    animator.cancel();
+                }
+
+                public boolean isStarted() {
+                    return animator.isStarted();
+                }
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Calls {@link Undoable#discard()} on the stored undos. Without an
+ * {@link Executor} the undos are discarded immediately on the calling thread.
+ * With an executor they are queued and discarded in batches, with at most one
+ * batch running at a time, so undos are always discarded in the order they
+ * were queued, no matter how many threads the executor uses. If a discard
+ * throws, the rest of its batch is still discarded and the first exception is
+ * rethrown afterwards.
+ */
+class DiscardQueue {
+
+    private final Object mLock = new Object();
+    private final List<Undoable> mPending = new ArrayList<Undoable>();
+    private final Runnable mDrainTask = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+
+    private Executor mExecutor;
+    private UndoJournal mJournal;
+    private boolean mScheduled;
+    private boolean mRunning;
+
+    void setExecutor(Executor executor) {
+        synchronized (mLock) {
+            mExecutor = executor;
+        }
+    }
+
+    void setJournal(UndoJournal journal) {
+        synchronized (mLock) {
+            mJournal = journal;
+        }
+    }
+
+    /**
+     * Discards the given undo or queues it to be discarded.
+     *
+     * @param undoable The undo to discard.
+     */
+    void discard(Undoable undoable) {
+        synchronized (mLock) {
+            mPending.add(undoable);
+            if (mExecutor != null) {
+                schedule();
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Discards all undos of the given history or queues them as one batch.
+     * The history will be empty afterwards.
+     *
+     * @param history The undos to discard.
+     */
+    void discardAll(UndoHistory history) {
+        if (history.isEmpty()) {
+            return;
+        }
+        synchronized (mLock) {
+            for (int i = 0; i < history.size(); i++) {
+                mPending.add(history.get(i));
+            }
+            history.clear();
+            if (mExecutor != null) {
+                schedule();
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Discards all queued undos on the calling thread. If a batch is currently
+     * discarded by the executor, this waits until it has finished.
+     */
+    void flush() {
+        List<Undoable> batch = takeBatch(true);
+        if (batch != null) {
+            runBatch(batch);
+        }
+    }
+
+    /**
+     * Waits until all queued undos have been discarded.
+     *
+     * @param timeoutMillis The maximum time to wait in milliseconds.
+     * @return Whether all undos were discarded within the timeout.
+     */
+    boolean await(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (mLock) {
+            while (mRunning || !mPending.isEmpty()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    mLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private void schedule() {
+        if (!mScheduled) {
+            mScheduled = true;
+            mExecutor.execute(mDrainTask);
+        }
+    }
+
+    private void drain() {
+        boolean drained = false;
+        try {
+            List<Undoable> batch;
+            while ((batch = takeBatch(false)) != null) {
+                runBatch(batch);
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                // A failed discard must not keep later undos from being discarded
+                synchronized (mLock) {
+                    mScheduled = false;
+                    if (!mPending.isEmpty() && mExecutor != null) {
+                        schedule();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes all queued undos and marks them as running.
+     *
+     * @param flush Whether this is called from {@link #flush()} instead of
+     *              the executor.
+     * @return The undos to discard or {@code null} if there are none.
+     */
+    private List<Undoable> takeBatch(boolean flush) {
+        synchronized (mLock) {
+            while (mRunning) {
+                try {
+                    mLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (!flush) {
+                        mScheduled = false;
+                    }
+                    return null;
+                }
+            }
+            if (mPending.isEmpty()) {
+                if (!flush) {
+                    mScheduled = false;
+                }
+                return null;
+            }
+            List<Undoable> batch = new ArrayList<Undoable>(mPending);
+            mPending.clear();
+            mRunning = true;
+            return batch;
+        }
+    }
+
+    private void runBatch(List<Undoable> batch) {
+        UndoJournal journal;
+        synchronized (mLock) {
+            journal = mJournal;
+        }
+        RuntimeException failure = null;
+        try {
+            for (Undoable undoable : batch) {
+                try {
+                    undoable.discard();
+                } catch (RuntimeException e) {
+                    // Discard the rest of the batch before reporting the first failure
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    continue;
+                }
+                if (journal != null) {
+                    journal.discarded(undoable);
+                }
+            }
+        } finally {
+            synchronized (mLock) {
+                mRunning = false;
+                mLock.notifyAll();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
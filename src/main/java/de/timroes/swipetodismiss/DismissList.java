@@ -15,21 +15,10 @@
  */
 package de.timroes.swipetodismiss;
 
-import android.content.Context;
-import android.os.Handler;
-import android.os.Message;
-import android.view.Gravity;
-import android.view.LayoutInflater;
-import android.view.MotionEvent;
-import android.view.View;
 import android.widget.AbsListView;
-import android.widget.Button;
-import android.widget.PopupWindow;
-import android.widget.TextView;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link android.view.View.OnTouchListener} that makes the list items in a
@@ -46,21 +35,11 @@ public class DismissList {
     protected final AbsListView mListView;
     protected final OnDismissCallback mCallback;
 
-    protected final float mDensity;
-
     protected final UndoMode mMode;
-    protected final List<Undoable> mUndoActions;
-    protected final Handler mHandler;
-
-    protected final PopupWindow mUndoPopup;
-    protected final TextView mUndoText;
-    protected final Button mUndoButton;
+    protected final UndoCoordinator mCoordinator;
+    protected MetricsListener mMetrics;
 
-    protected int mAutoHideDelay = 5000;
     protected String mDeleteString = "Item deleted";
-    protected String mDeleteMultipleString = "%d items deleted";
-
-    private int mDelayedMsgId;
 
     /**
      * Defines the mode a {@link DismissList} handles multiple undos.
@@ -109,6 +88,31 @@ public class DismissList {
         Undoable onDismiss(AbsListView listView, int position);
     }
 
+    /**
+     * An {@link OnDismissCallback} that gets informed about all items dismissed
+     * together in one call, e.g. because several swipe animations ended at the
+     * same time. This allows the adapter to be updated only once per batch.
+     * The whole batch is undone by a single {@link Undoable}.
+     * <p/>
+     * A {@link DismissList} only calls {@link #onDismiss(AbsListView, int[])}
+     * on this callback, also for a single item.
+     */
+    public interface OnBatchDismissCallback extends OnDismissCallback {
+
+        /**
+         * Called when the user has indicated they she would like to dismiss one
+         * or more list item positions.
+         *
+         * @param listView  The originating {@link android.widget.ListView}.
+         * @param positions The positions of the items to dismiss, sorted in
+         *                  descending order. The array must not be kept after
+         *                  this method returned.
+         * @return An {@link Undoable} undoing the dismiss of all items, or
+         * {@code null} if the dismiss can't be undone.
+         */
+        Undoable onDismiss(AbsListView listView, int[] positions);
+    }
+
     /**
      * An implementation of this abstract class must be returned by the
      * {@link OnDismissCallback#onDismiss(android.widget.AbsListView, int)} method,
@@ -143,8 +147,22 @@ public class DismissList {
         public void discard() {
         }
 
+        /**
+         * Returns the key identifying this dismiss in the {@link UndoJournal}.
+         * If a journal is used, the key is passed to
+         * {@link UndoJournal.OnReplayListener#onReplayDiscard(String)} when the
+         * process died before this Undoable has been undone or discarded.
+         *
+         * @return The journal key or {@code null} if this dismiss shouldn't be
+         * recorded in the journal.
+         */
+        public String getJournalKey() {
+            return null;
+        }
+
     }
 
+
     /**
      * Constructs a new swipe-to-dismiss touch listener for the given list view.
      *
@@ -165,55 +183,40 @@ public class DismissList {
      * @param mode     The mode this list handles multiple undos.
      */
     public DismissList(AbsListView listView, OnDismissCallback callback, UndoMode mode) {
+        this(listView, callback, new UndoCoordinator(mode));
+    }
+
+    /**
+     * Constructs a new swipe-to-dismiss touch listener for the given list view,
+     * sharing the undo popup and the stored undos with all other lists using
+     * the same {@link UndoCoordinator}.
+     *
+     * @param listView    The list view whose items should be dismissable.
+     * @param callback    The callback to trigger when the user has indicated that
+     *                    she would like to dismiss one or more list items.
+     * @param coordinator The coordinator showing the undo popup for this list.
+     */
+    public DismissList(AbsListView listView, OnDismissCallback callback, UndoCoordinator coordinator) {
         if (listView == null) {
             throw new IllegalArgumentException("listview must not be null.");
         }
+        if (coordinator == null) {
+            throw new IllegalArgumentException("coordinator must not be null.");
+        }
 
-        mHandler = new HideUndoPopupHandler();
         mListView = listView;
         mCallback = callback;
-        mMode = mode;
-
-        mDensity = mListView.getResources().getDisplayMetrics().density;
-
-        // -- Load undo popup --
-        LayoutInflater inflater = (LayoutInflater) mListView.getContext().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        View v = inflater.inflate(R.layout.undo_popup, null);
-        mUndoButton = (Button) v.findViewById(R.id.undo);
-        mUndoButton.setOnClickListener(new UndoHandler());
-        mUndoButton.setOnTouchListener(new View.OnTouchListener() {
-            public boolean onTouch(View v, MotionEvent event) {
-                // If user tabs "undo" button, reset delay time to remove popup
-                interruptHidePopup();
-                return false;
-            }
-        });
-        mUndoText = (TextView) v.findViewById(R.id.text);
-
-        mUndoPopup = new PopupWindow(v);
-        mUndoPopup.setAnimationStyle(R.style.fade_animation);
-        // Get screen width in dp and set width respectively
-        int xdensity = (int) (mListView.getContext().getResources().getDisplayMetrics().widthPixels / mDensity);
-        if (xdensity < 300) {
-            mUndoPopup.setWidth((int) (mDensity * 280));
-        } else if (xdensity < 350) {
-            mUndoPopup.setWidth((int) (mDensity * 300));
-        } else if (xdensity < 500) {
-            mUndoPopup.setWidth((int) (mDensity * 330));
-        } else {
-            mUndoPopup.setWidth((int) (mDensity * 450));
-        }
-        mUndoPopup.setHeight((int) (mDensity * 56));
-        // -- END Load undo popup --
-
-        switch (mode) {
-            case SINGLE_UNDO:
-                mUndoActions = new ArrayList<Undoable>(1);
-                break;
-            default:
-                mUndoActions = new ArrayList<Undoable>(10);
-                break;
-        }
+        mCoordinator = coordinator;
+        mMode = coordinator.getMode();
+    }
+
+    /**
+     * Returns the {@link UndoCoordinator} showing the undo popup for this list.
+     *
+     * @return The coordinator of this list.
+     */
+    public UndoCoordinator getUndoCoordinator() {
+        return mCoordinator;
     }
 
     /**
@@ -232,146 +235,185 @@ public class DismissList {
      * {@link UndoMode#MULTI_UNDO} or {@link UndoMode#COLLAPSED_UNDO} and
      * multiple deletions has been stored for undo. If this string contains
      * one {@code %d} inside, this will be filled by the numbers of stored undos.
+     * This is shared by all lists using the same {@link UndoCoordinator}.
      *
      * @param msg The string shown in the undo popup for multiple undos.
      */
     public void setUndoMultipleString(String msg) {
-        mDeleteMultipleString = msg;
+        mCoordinator.setUndoMultipleString(msg);
     }
 
 
     /**
-     * Discard all stored undos and hide the undo popup dialog.
+     * Limits the number of undos stored in {@link UndoMode#MULTI_UNDO} and
+     * {@link UndoMode#COLLAPSED_UNDO} mode. As soon as more items are dismissed,
+     * the oldest stored undo will be discarded. By default the number of
+     * stored undos isn't limited.
+     *
+     * @param capacity The maximum number of stored undos, or {@code 0} for
+     *                 no limit.
      */
-    public void discardUndo() {
-        for (Undoable undoable : mUndoActions) {
-            undoable.discard();
-        }
-        mUndoActions.clear();
-        mUndoPopup.dismiss();
+    public void setUndoCapacity(int capacity) {
+        mCoordinator.setUndoCapacity(capacity);
     }
 
     /**
-     * Dismisses the items at the given positions.
+     * Sets the {@link Executor} used to call {@link Undoable#discard()}. By
+     * default undos are discarded on the main thread. With an executor, the
+     * undos are handed over in batches and are discarded one batch after the
+     * other, in the order they were discarded. Use {@link #flushDiscards()} or
+     * {@link #awaitDiscards(long)} to wait for them, e.g. in {@code onStop}.
      *
-     * @param positions The item positions.
+     * @param executor The executor to use, or {@code null} to discard on the
+     *                 calling thread.
      */
-    public void dismiss(int... positions) {
-        for (int position : positions) {
-            if (mMode == UndoMode.SINGLE_UNDO) {
-                for (Undoable undoable : mUndoActions) {
-                    undoable.discard();
-                }
-                mUndoActions.clear();
-            }
-            Undoable undoable = mCallback.onDismiss(mListView, position);
-            if (undoable != null) {
-                mUndoActions.add(undoable);
-            }
-            interruptHidePopup();
-        }
+    public void setDiscardExecutor(Executor executor) {
+        mCoordinator.setDiscardExecutor(executor);
+    }
 
-        if (!mUndoActions.isEmpty()) {
-            changePopupText();
-            changeButtonLabel();
+    /**
+     * Immediately discards all undos still waiting for the discard executor
+     * on the calling thread. If the executor is currently discarding undos,
+     * this blocks until it's finished.
+     */
+    public void flushDiscards() {
+        mCoordinator.flushDiscards();
+    }
 
-            // Calculate bottom offset
-            int[] listPosition = new int[2];
-            int rootBottom = getBottom(mListView.getRootView(), listPosition);
-            int listBottom = getBottom(mListView, listPosition);
-            int offset = rootBottom - listBottom;
+    /**
+     * Waits until the discard executor has discarded all undos handed to it.
+     *
+     * @param timeout The maximum time to wait in milliseconds.
+     * @return Whether all undos were discarded within the timeout.
+     */
+    public boolean awaitDiscards(long timeout) {
+        return mCoordinator.awaitDiscards(timeout);
+    }
 
-            // Show undo popup
-            mUndoPopup.showAtLocation(mListView,
-                    Gravity.CENTER_HORIZONTAL | Gravity.BOTTOM,
-                    0, (int) (mDensity * 15) + offset);
-        }
+    /**
+     * Sets the {@link UndoJournal} recording all dismissed, undone and
+     * discarded items, so pending discards can be replayed if the process
+     * gets killed while the undo popup is shown.
+     *
+     * @param journal The journal to use, or {@code null} to use none.
+     */
+    public void setUndoJournal(UndoJournal journal) {
+        mCoordinator.setUndoJournal(journal);
     }
 
-    private static int getBottom(View view, int[] point) {
-        view.getLocationInWindow(point);
-        return point[1] + view.getHeight();
+    /**
+     * Sets the {@link MetricsListener} informed about the timing of swipes and
+     * dismisses and about the stored undos. If the {@link UndoCoordinator} is
+     * shared, the listener is informed about the undos of all its lists. No
+     * listener is set by default, in which case nothing is measured.
+     *
+     * @param listener The listener to inform, or {@code null} to inform none.
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        mMetrics = listener;
+        mCoordinator.setMetricsListener(listener);
     }
 
     /**
-     * Changes text in the popup depending on stored undos.
+     * Discard all stored undos and hide the undo popup dialog. If the
+     * {@link UndoCoordinator} is shared, this discards the undos of all lists.
      */
-    private void changePopupText() {
-        String msg = "";
-        if (mUndoActions.size() > 1 && mDeleteMultipleString != null) {
-            msg = String.format(mDeleteMultipleString, mUndoActions.size());
-        } else if (mUndoActions.size() >= 1) {
-            // Set title from single undoable or when no multiple deletion string
-            // is given
-            if (mUndoActions.get(mUndoActions.size() - 1).getTitle() != null) {
-                msg = mUndoActions.get(mUndoActions.size() - 1).getTitle();
-            } else {
-                msg = mDeleteString;
-            }
-        }
-        mUndoText.setText(msg);
+    public void discardUndo() {
+        mCoordinator.discardUndo();
+    }
+
+    /**
+     * Dismisses the items at the given positions.
+     *
+     * @param positions The item positions.
+     */
+    public void dismiss(int... positions) {
+        dismiss(positions, positions.length);
     }
 
-    private void changeButtonLabel() {
-        String msg;
-        if (mUndoActions.size() > 1 && mMode == UndoMode.COLLAPSED_UNDO) {
-            msg = mListView.getResources().getString(R.string.undoall);
+    /**
+     * Dismisses the items at the first {@code count} positions of the given
+     * array. This allows passing in a reused buffer without copying it.
+     *
+     * @param positions The item positions.
+     * @param count     The number of positions to use from the array.
+     */
+    protected void dismiss(int[] positions, int count) {
+        if (count == 0) {
+            return;
+        }
+
+        // The topmost dismissed item is where an inline undo will be shown
+        int first = positions[0];
+        for (int i = 1; i < count; i++) {
+            first = Math.min(first, positions[i]);
+        }
+
+        if (mCallback instanceof OnBatchDismissCallback) {
+            dismissBatch((OnBatchDismissCallback) mCallback, positions, count);
         } else {
-            msg = mListView.getResources().getString(R.string.undo);
+            dismissEach(positions, count);
         }
-        mUndoButton.setText(msg);
+        mCoordinator.showUndoPopup(this, first);
     }
 
     /**
-     * Takes care of undoing a dismiss. This will be added as a
-     * {@link android.view.View.OnClickListener} to the undo button in the undo popup.
+     * Called when an {@link Undoable} returned by the {@link OnDismissCallback}
+     * of this list should be undone. Override this to react on undos, e.g. to
+     * scroll the restored item into view.
+     *
+     * @param undoable The undo to perform.
      */
-    private class UndoHandler implements View.OnClickListener {
-
-        public void onClick(View v) {
-            if (!mUndoActions.isEmpty()) {
-                switch (mMode) {
-                    case SINGLE_UNDO:
-                        mUndoActions.get(0).undo();
-                        mUndoActions.clear();
-                        break;
-                    case COLLAPSED_UNDO:
-                        Collections.reverse(mUndoActions);
-                        for (Undoable undo : mUndoActions) {
-                            undo.undo();
-                        }
-                        mUndoActions.clear();
-                        break;
-                    case MULTI_UNDO:
-                        mUndoActions.get(mUndoActions.size() - 1).undo();
-                        mUndoActions.remove(mUndoActions.size() - 1);
-                        break;
-                }
-            }
+    protected void onUndo(Undoable undoable) {
+        undoable.undo();
+    }
 
-            // Dismiss dialog or change text
-            if (mUndoActions.isEmpty()) {
-                mUndoPopup.dismiss();
-            } else {
-                changePopupText();
-                changeButtonLabel();
+    private void dismissEach(int[] positions, int count) {
+        for (int i = 0; i < count; i++) {
+            mCoordinator.beforeDismiss();
+            Undoable undoable = mCallback.onDismiss(mListView, positions[i]);
+            if (undoable != null) {
+                mCoordinator.addUndo(this, undoable);
             }
-
             interruptHidePopup();
         }
+    }
+
+    private void dismissBatch(OnBatchDismissCallback callback, int[] positions, int count) {
+        // The callback expects exactly the dismissed positions in descending order
+        boolean sorted = true;
+        for (int i = 1; i < count && sorted; i++) {
+            sorted = positions[i - 1] >= positions[i];
+        }
+        if (!sorted || count != positions.length) {
+            int[] batch = new int[count];
+            System.arraycopy(positions, 0, batch, 0, count);
+            if (!sorted) {
+                Arrays.sort(batch);
+                for (int i = 0, j = count - 1; i < j; i++, j--) {
+                    int tmp = batch[i];
+                    batch[i] = batch[j];
+                    batch[j] = tmp;
+                }
+            }
+            positions = batch;
+        }
 
+        mCoordinator.beforeDismiss();
+        Undoable undoable = callback.onDismiss(mListView, positions);
+        if (undoable != null) {
+            mCoordinator.addUndo(this, undoable);
+        }
+        interruptHidePopup();
     }
 
     /**
      * Hide the popup after the configured delay, unless interrupted
-     * by another event using {@link #interruptHidePopup()}.
+     * by another event using {@link #interruptHidePopup()}. If the popup is
+     * already scheduled to hide, this won't reschedule it.
      */
     public void hidePopup() {
-        if (mUndoPopup.isShowing()) {
-            // Send a delayed message to hide popup
-            mHandler.sendMessageDelayed(mHandler.obtainMessage(mDelayedMsgId),
-                    mAutoHideDelay);
-        }
+        mCoordinator.hidePopup();
     }
 
     /**
@@ -379,26 +421,44 @@ public class DismissList {
      * until {@link #hidePopup()} is called again.
      */
     public void interruptHidePopup() {
-        ++mDelayedMsgId;
+        mCoordinator.interruptHidePopup();
     }
 
     /**
-     * Handler used to hide the undo popup after a special delay.
+     * Pauses the countdown hiding the undo popup, e.g. in {@code onStop} of
+     * your activity. See {@link UndoCoordinator#pauseHidePopup()}.
      */
-    private class HideUndoPopupHandler extends Handler {
-
-        @Override
-        public void handleMessage(Message msg) {
-            if (msg.what == mDelayedMsgId) {
-                // Call discard on any element
-                for (Undoable undo : mUndoActions) {
-                    undo.discard();
-                }
-                mUndoActions.clear();
-                mUndoPopup.dismiss();
-            }
-        }
+    public void pauseHidePopup() {
+        mCoordinator.pauseHidePopup();
+    }
 
+    /**
+     * Resumes the countdown paused by {@link #pauseHidePopup()}, e.g. in
+     * {@code onStart} of your activity.
+     */
+    public void resumeHidePopup() {
+        mCoordinator.resumeHidePopup();
+    }
+
+    /**
+     * Discards all stored undos early under memory pressure. Call this from
+     * {@code onTrimMemory} of your activity. See
+     * {@link UndoCoordinator#onTrimMemory(int)}.
+     *
+     * @param level The memory trim level passed to {@code onTrimMemory}.
+     */
+    public void onTrimMemory(int level) {
+        mCoordinator.onTrimMemory(level);
+    }
+
+    /**
+     * Returns the time left until the undo popup will be hidden.
+     *
+     * @return The remaining time in milliseconds or {@code -1} if the popup
+     * is currently not scheduled to hide.
+     */
+    public long getRemainingHideDelay() {
+        return mCoordinator.getRemainingHideDelay();
     }
 
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+/**
+ * A {@link MetricsListener} counting all events, e.g. to be logged or
+ * reported once the user leaves the list.
+ */
+public class DismissMetrics implements MetricsListener {
+
+    private int mDeliveries;
+    private int mDismissedItems;
+    private long mTotalDismissLatency;
+    private long mMaxDismissLatency;
+    private int mCollapses;
+    private long mTotalCollapseDuration;
+    private long mMaxCollapseDuration;
+    private int mDroppedSwipeFrames;
+    private int mDroppedCollapseFrames;
+    private int mUndos;
+    private int mDiscards;
+    private int mPeakUndoSize;
+
+    @Override
+    public void onDismissDelivered(int count, long latency) {
+        mDeliveries++;
+        mDismissedItems += count;
+        mTotalDismissLatency += latency;
+        mMaxDismissLatency = Math.max(mMaxDismissLatency, latency);
+    }
+
+    @Override
+    public void onCollapseFinished(int count, long duration) {
+        mCollapses++;
+        mTotalCollapseDuration += duration;
+        mMaxCollapseDuration = Math.max(mMaxCollapseDuration, duration);
+    }
+
+    @Override
+    public void onFramesDropped(int frames, boolean collapsing) {
+        if (collapsing) {
+            mDroppedCollapseFrames += frames;
+        } else {
+            mDroppedSwipeFrames += frames;
+        }
+    }
+
+    @Override
+    public void onUndoStored(int size) {
+        mPeakUndoSize = Math.max(mPeakUndoSize, size);
+    }
+
+    @Override
+    public void onUndone(int count) {
+        mUndos += count;
+    }
+
+    @Override
+    public void onDiscarded(int count) {
+        mDiscards += count;
+    }
+
+    /**
+     * Returns the number of swiped items delivered to the dismiss callback.
+     *
+     * @return The number of dismissed items.
+     */
+    public int getDismissedItems() {
+        return mDismissedItems;
+    }
+
+    /**
+     * Returns the average time from {@code ACTION_UP} to the delivery of the
+     * dismissed items.
+     *
+     * @return The average latency in milliseconds, or {@code 0} if nothing
+     * has been delivered yet.
+     */
+    public long getAverageDismissLatency() {
+        return mDeliveries > 0 ? mTotalDismissLatency / mDeliveries : 0;
+    }
+
+    /**
+     * Returns the longest time from {@code ACTION_UP} to the delivery of the
+     * dismissed items.
+     *
+     * @return The maximum latency in milliseconds.
+     */
+    public long getMaxDismissLatency() {
+        return mMaxDismissLatency;
+    }
+
+    /**
+     * Returns the average duration of the collapse animations.
+     *
+     * @return The average duration in milliseconds, or {@code 0} if no
+     * collapse has finished yet.
+     */
+    public long getAverageCollapseDuration() {
+        return mCollapses > 0 ? mTotalCollapseDuration / mCollapses : 0;
+    }
+
+    /**
+     * Returns the longest duration of the collapse animations.
+     *
+     * @return The maximum duration in milliseconds.
+     */
+    public long getMaxCollapseDuration() {
+        return mMaxCollapseDuration;
+    }
+
+    /**
+     * Returns the number of frames dropped while items were swiped.
+     *
+     * @return The number of dropped frames.
+     */
+    public int getDroppedSwipeFrames() {
+        return mDroppedSwipeFrames;
+    }
+
+    /**
+     * Returns the number of frames dropped while items were collapsed.
+     *
+     * @return The number of dropped frames.
+     */
+    public int getDroppedCollapseFrames() {
+        return mDroppedCollapseFrames;
+    }
+
+    /**
+     * Returns the number of undone undos.
+     *
+     * @return The number of undos.
+     */
+    public int getUndoCount() {
+        return mUndos;
+    }
+
+    /**
+     * Returns the number of discarded undos.
+     *
+     * @return The number of discards.
+     */
+    public int getDiscardCount() {
+        return mDiscards;
+    }
+
+    /**
+     * Returns the share of undos among all undos that have either been
+     * undone or discarded.
+     *
+     * @return The ratio between {@code 0} and {@code 1}, or {@code 0} if
+     * no undo has been undone or discarded yet.
+     */
+    public float getUndoRatio() {
+        int total = mUndos + mDiscards;
+        return total > 0 ? (float) mUndos / total : 0f;
+    }
+
+    /**
+     * Returns the largest number of undos stored at the same time.
+     *
+     * @return The peak number of stored undos.
+     */
+    public int getPeakUndoSize() {
+        return mPeakUndoSize;
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void reset() {
+        mDeliveries = 0;
+        mDismissedItems = 0;
+        mTotalDismissLatency = 0;
+        mMaxDismissLatency = 0;
+        mCollapses = 0;
+        mTotalCollapseDuration = 0;
+        mMaxCollapseDuration = 0;
+        mDroppedSwipeFrames = 0;
+        mDroppedCollapseFrames = 0;
+        mUndos = 0;
+        mDiscards = 0;
+        mPeakUndoSize = 0;
+    }
+
+}
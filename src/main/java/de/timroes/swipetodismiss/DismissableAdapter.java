@@ -0,0 +1,271 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListAdapter;
+
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ListAdapter} wrapping another adapter, that hides dismissed items
+ * without changing the wrapped adapter. This is useful if removing an item
+ * from the wrapped adapter is expensive, e.g. for a {@link android.widget.CursorAdapter}
+ * that would need to requery on every dismiss.
+ * <p/>
+ * Return {@link #hide(int)} from your {@link DismissList.OnDismissCallback}.
+ * Undoing the dismiss will just show the item again. When the undo is
+ * discarded, the {@link OnCommitListener} is called to finally delete the
+ * item from the wrapped adapter's data.
+ * <p/>
+ * Positions are mapped to the wrapped adapter using a Fenwick tree, so each
+ * lookup takes O(log n). The wrapped adapter must have stable ids, which are
+ * used to find the hidden items again when its data changes. A committed item
+ * stays hidden until it has been removed from the wrapped adapter.
+ */
+public class DismissableAdapter extends BaseAdapter {
+
+    private final ListAdapter mAdapter;
+    private final OnCommitListener mCommitListener;
+    private final List<HiddenItem> mHiddenItems = new ArrayList<HiddenItem>();
+
+    // Fenwick tree over the wrapped positions, counting the visible items
+    private int[] mTree = new int[1];
+    private int mCount;
+
+    /**
+     * Called when the dismiss of an item has been discarded, meaning it
+     * can't be undone anymore and should finally be deleted.
+     */
+    public interface OnCommitListener {
+
+        /**
+         * Deletes the dismissed item from the data of the wrapped adapter.
+         * This is called from {@link Undoable#discard()}, so it runs on the
+         * discard executor of the {@link DismissList}, if one is set. In that
+         * case the data might have changed again until the call, so rely on
+         * the id rather than the position.
+         *
+         * @param position The position of the item in the wrapped adapter,
+         *                 when the discard was called.
+         * @param id       The id of the item in the wrapped adapter.
+         */
+        void onCommit(int position, long id);
+
+    }
+
+    private static class HiddenItem {
+
+        // Updated on the main thread, read by discards on the executor
+        volatile int position;
+        final long id;
+
+        HiddenItem(int position, long id) {
+            this.position = position;
+            this.id = id;
+        }
+
+    }
+
+    /**
+     * Creates a new adapter hiding dismissed items of the given adapter.
+     *
+     * @param adapter  The adapter to wrap, which must have stable ids.
+     * @param listener The listener to finally delete the items.
+     * @throws IllegalArgumentException If the adapter doesn't have stable ids.
+     */
+    public DismissableAdapter(ListAdapter adapter, OnCommitListener listener) {
+        if (!adapter.hasStableIds()) {
+            throw new IllegalArgumentException("The wrapped adapter must have stable ids.");
+        }
+        mAdapter = adapter;
+        mCommitListener = listener;
+        mAdapter.registerDataSetObserver(new DataSetObserver() {
+            @Override
+            public void onChanged() {
+                rebuild();
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void onInvalidated() {
+                rebuild();
+                notifyDataSetInvalidated();
+            }
+        });
+        rebuild();
+    }
+
+    /**
+     * Returns the wrapped adapter.
+     *
+     * @return The wrapped adapter.
+     */
+    public ListAdapter getWrappedAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * Hides the item at the given position.
+     *
+     * @param position The position of the item in this adapter.
+     * @return An {@link Undoable} showing the item again, that finally deletes
+     * the item using the {@link OnCommitListener} when it's discarded.
+     */
+    public Undoable hide(int position) {
+        int wrappedPosition = toWrappedPosition(position);
+        final HiddenItem item = new HiddenItem(wrappedPosition, mAdapter.getItemId(wrappedPosition));
+        mHiddenItems.add(item);
+        update(item.position, -1);
+        notifyDataSetChanged();
+
+        return new Undoable() {
+            @Override
+            public void undo() {
+                if (mHiddenItems.remove(item)) {
+                    update(item.position, 1);
+                    notifyDataSetChanged();
+                }
+            }
+
+            @Override
+            public void discard() {
+                mCommitListener.onCommit(item.position, item.id);
+            }
+        };
+    }
+
+    /**
+     * Maps a position of this adapter to the position in the wrapped adapter.
+     *
+     * @param position The position in this adapter.
+     * @return The position in the wrapped adapter.
+     */
+    public int toWrappedPosition(int position) {
+        // Find the wrapped position with exactly position + 1 visible items up to it
+        int remaining = position + 1;
+        int index = 0;
+        for (int mask = Integer.highestOneBit(mCount); mask != 0; mask >>= 1) {
+            int next = index + mask;
+            if (next <= mCount && mTree[next] < remaining) {
+                index = next;
+                remaining -= mTree[next];
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public int getCount() {
+        return mCount - mHiddenItems.size();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return mAdapter.getItem(toWrappedPosition(position));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mAdapter.getItemId(toWrappedPosition(position));
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mAdapter.hasStableIds();
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        return mAdapter.getView(toWrappedPosition(position), convertView, parent);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mAdapter.getItemViewType(toWrappedPosition(position));
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return mAdapter.getViewTypeCount();
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return mAdapter.areAllItemsEnabled();
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return mAdapter.isEnabled(toWrappedPosition(position));
+    }
+
+    /**
+     * Rebuilds the Fenwick tree after the wrapped adapter changed and finds the
+     * new positions of the hidden items.
+     */
+    private void rebuild() {
+        mCount = mAdapter.getCount();
+
+        if (!mHiddenItems.isEmpty()) {
+            // Items that are gone from the wrapped adapter, e.g. after their commit, are dropped
+            Map<Long, HiddenItem> hiddenIds = new HashMap<Long, HiddenItem>();
+            for (HiddenItem item : mHiddenItems) {
+                hiddenIds.put(item.id, item);
+            }
+            mHiddenItems.clear();
+            for (int i = 0; i < mCount && !hiddenIds.isEmpty(); i++) {
+                HiddenItem item = hiddenIds.remove(mAdapter.getItemId(i));
+                if (item != null) {
+                    item.position = i;
+                    mHiddenItems.add(item);
+                }
+            }
+        }
+
+        if (mTree.length < mCount + 1) {
+            mTree = new int[mCount + 1];
+        }
+        for (int i = 1; i <= mCount; i++) {
+            mTree[i] = 1;
+        }
+        for (HiddenItem item : mHiddenItems) {
+            mTree[item.position + 1] = 0;
+        }
+        // Build the tree in place in O(n)
+        for (int i = 1; i <= mCount; i++) {
+            int parent = i + (i & -i);
+            if (parent <= mCount) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    private void update(int position, int delta) {
+        for (int i = position + 1; i <= mCount; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.database.DataSetObserver;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.Button;
+import android.widget.ListAdapter;
+import android.widget.ListView;
+import android.widget.TextView;
+
+/**
+ * An {@link UndoPresenter} showing the undo as a row inside of the list, in
+ * place of the latest dismissed item, instead of opening a popup window.
+ * <p/>
+ * This is a {@link ListAdapter} wrapping the adapter of your list. Set it as
+ * the adapter of the list and pass it to
+ * {@link UndoCoordinator#setUndoPresenter(UndoPresenter)}. While the undo row
+ * is shown, the positions of the following items are shifted by one, so use
+ * {@link #getItem(int)} or {@link #toWrappedPosition(int)} in your
+ * {@link DismissList.OnDismissCallback} to find the dismissed item.
+ * The undo row itself is disabled and can't be dismissed.
+ */
+public class InlineUndoPresenter extends BaseAdapter implements UndoPresenter {
+
+    /**
+     * The id of the undo row.
+     */
+    public static final long UNDO_ROW_ID = Long.MIN_VALUE + 1;
+
+    private final ListAdapter mAdapter;
+    private final DataSetObserver mWrappedObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            mUndoPosition = Math.min(mUndoPosition, mAdapter.getCount());
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            mUndoPosition = Math.min(mUndoPosition, mAdapter.getCount());
+            notifyDataSetInvalidated();
+        }
+    };
+    // The wrapped adapter is only observed while this adapter is observed
+    private int mObserverCount;
+    private Host mHost;
+
+    private boolean mShowing;
+    // The position in the wrapped adapter the undo row is shown in front of
+    private int mUndoPosition;
+    private String mText = "";
+    private String mLabel = "";
+
+    // The currently bound undo row, updated directly if only the text changes
+    private TextView mUndoText;
+    private Button mUndoButton;
+
+    /**
+     * Creates a new presenter showing the undo row in the given adapter.
+     *
+     * @param adapter The adapter to wrap.
+     */
+    public InlineUndoPresenter(ListAdapter adapter) {
+        mAdapter = adapter;
+    }
+
+    /**
+     * Returns the wrapped adapter.
+     *
+     * @return The wrapped adapter.
+     */
+    public ListAdapter getWrappedAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * Maps a position of this adapter to the position in the wrapped adapter.
+     *
+     * @param position The position in this adapter, which must not be the
+     *                 position of the undo row.
+     * @return The position in the wrapped adapter.
+     */
+    public int toWrappedPosition(int position) {
+        return mShowing && position > mUndoPosition ? position - 1 : position;
+    }
+
+    /**
+     * Returns whether the given position is the position of the undo row.
+     *
+     * @param position The position in this adapter.
+     * @return Whether the undo row is shown at that position.
+     */
+    public boolean isUndoRow(int position) {
+        return mShowing && position == mUndoPosition;
+    }
+
+    public void setHost(Host host) {
+        mHost = host;
+    }
+
+    public void show(AbsListView listView, int position, CharSequence text, CharSequence buttonLabel) {
+        if (listView instanceof ListView) {
+            position -= ((ListView) listView).getHeaderViewsCount();
+        }
+        // The dismissed item has already been removed from the wrapped adapter,
+        // so the undo row takes its place in front of the following item
+        int wrappedPosition = toWrappedPosition(position);
+        mUndoPosition = Math.max(0, Math.min(wrappedPosition, mAdapter.getCount()));
+        setText(text, buttonLabel);
+        mShowing = true;
+        notifyDataSetChanged();
+    }
+
+    public void update(CharSequence text, CharSequence buttonLabel) {
+        setText(text, buttonLabel);
+        if (mShowing && mUndoText != null) {
+            bindUndoRow();
+        }
+    }
+
+    public void hide() {
+        if (mShowing) {
+            mShowing = false;
+            mUndoText = null;
+            mUndoButton = null;
+            notifyDataSetChanged();
+        }
+    }
+
+    public boolean isShowing() {
+        return mShowing;
+    }
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+        super.registerDataSetObserver(observer);
+        if (mObserverCount++ == 0) {
+            // The wrapped data might have changed while nobody was observing
+            mUndoPosition = Math.min(mUndoPosition, mAdapter.getCount());
+            mAdapter.registerDataSetObserver(mWrappedObserver);
+        }
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        super.unregisterDataSetObserver(observer);
+        if (--mObserverCount == 0) {
+            mAdapter.unregisterDataSetObserver(mWrappedObserver);
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return mShowing ? mAdapter.getCount() + 1 : mAdapter.getCount();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        if (isUndoRow(position)) {
+            return null;
+        }
+        return mAdapter.getItem(toWrappedPosition(position));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (isUndoRow(position)) {
+            return UNDO_ROW_ID;
+        }
+        return mAdapter.getItemId(toWrappedPosition(position));
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mAdapter.hasStableIds();
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        if (isUndoRow(position)) {
+            return getUndoRow(convertView, parent);
+        }
+        return mAdapter.getView(toWrappedPosition(position), convertView, parent);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        if (isUndoRow(position)) {
+            return mAdapter.getViewTypeCount();
+        }
+        return mAdapter.getItemViewType(toWrappedPosition(position));
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return mAdapter.getViewTypeCount() + 1;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return !mShowing && mAdapter.areAllItemsEnabled();
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        if (isUndoRow(position)) {
+            return false;
+        }
+        return mAdapter.isEnabled(toWrappedPosition(position));
+    }
+
+    private View getUndoRow(View convertView, ViewGroup parent) {
+        View row = convertView;
+        if (row == null) {
+            LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+            row = inflater.inflate(R.layout.undo_popup, parent, false);
+            float density = parent.getResources().getDisplayMetrics().density;
+            row.setMinimumHeight((int) (density * 56));
+
+            Button button = (Button) row.findViewById(R.id.undo);
+            button.setOnClickListener(new View.OnClickListener() {
+                public void onClick(View v) {
+                    mHost.onUndoClick();
+                }
+            });
+            button.setOnTouchListener(new View.OnTouchListener() {
+                public boolean onTouch(View v, MotionEvent event) {
+                    // If user tabs "undo" button, reset delay time to hide the row
+                    mHost.onUndoTouch();
+                    return false;
+                }
+            });
+        }
+        mUndoText = (TextView) row.findViewById(R.id.text);
+        mUndoButton = (Button) row.findViewById(R.id.undo);
+        bindUndoRow();
+        return row;
+    }
+
+    private void setText(CharSequence text, CharSequence buttonLabel) {
+        if (!mText.contentEquals(text)) {
+            mText = text.toString();
+        }
+        if (!mLabel.contentEquals(buttonLabel)) {
+            mLabel = buttonLabel.toString();
+        }
+    }
+
+    /**
+     * Sets the text and the label on the bound undo row, skipping the views
+     * that already show them.
+     */
+    private void bindUndoRow() {
+        if (!mText.contentEquals(mUndoText.getText())) {
+            mUndoText.setText(mText);
+        }
+        if (!mLabel.contentEquals(mUndoButton.getText())) {
+            mUndoButton.setText(mLabel);
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+/**
+ * Informed about the timing of swipes and dismisses and about the stored
+ * undos of a {@link DismissList}. Set a listener with
+ * {@link DismissList#setMetricsListener(MetricsListener)}, e.g. a
+ * {@link DismissMetrics} to count the events. If no listener is set, no
+ * measurements are taken at all.
+ * <p/>
+ * All methods are called on the UI thread.
+ */
+public interface MetricsListener {
+
+    /**
+     * Called right before swiped items are delivered to the
+     * {@link DismissList.OnDismissCallback}.
+     *
+     * @param count   The number of items delivered.
+     * @param latency The time in milliseconds from the {@code ACTION_UP} of
+     *                the oldest swipe to the delivery.
+     */
+    void onDismissDelivered(int count, long latency);
+
+    /**
+     * Called when the collapse animation of dismissed items has finished.
+     *
+     * @param count    The number of items collapsed together.
+     * @param duration The time in milliseconds from the start of the collapse
+     *                 to its end.
+     */
+    void onCollapseFinished(int count, long duration);
+
+    /**
+     * Called when display frames have been dropped while an item is swiped
+     * or collapsed. A frame counts as dropped if more than one frame interval
+     * of the display passes between two updates of the animation. Swipes are
+     * measured once per display frame, which requires API level 16.
+     *
+     * @param frames     The number of frames dropped.
+     * @param collapsing {@code true} if frames were dropped during a collapse,
+     *                   {@code false} if they were dropped during a swipe.
+     */
+    void onFramesDropped(int frames, boolean collapsing);
+
+    /**
+     * Called when an undo has been stored.
+     *
+     * @param size The number of stored undos afterwards.
+     */
+    void onUndoStored(int size);
+
+    /**
+     * Called when stored undos have been undone.
+     *
+     * @param count The number of undos undone.
+     */
+    void onUndone(int count);
+
+    /**
+     * Called when stored undos have been handed over to be discarded.
+     *
+     * @param count The number of undos discarded.
+     */
+    void onDiscarded(int count);
+
+}
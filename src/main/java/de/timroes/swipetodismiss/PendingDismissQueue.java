@@ -0,0 +1,288 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.view.View;
+import android.widget.AbsListView;
+import android.widget.AdapterView;
+
+import java.util.Arrays;
+
+/**
+ * The dismisses of a {@link SwipeDismissList} that are still animating. The
+ * entries are kept sorted by descending position in parallel arrays, so
+ * {@link #getPositions(int)} can be handed to {@link DismissList#dismiss(int...)}
+ * without sorting them again. The arrays are reused and only grow, when more
+ * items are dismissed at once than ever before.
+ */
+class PendingDismissQueue {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    int size;
+    int[] positions = new int[INITIAL_CAPACITY];
+    // Stable ids of the items or AdapterView.INVALID_ROW_ID if the adapter has none
+    long[] ids = new long[INITIAL_CAPACITY];
+    View[] views = new View[INITIAL_CAPACITY];
+    int[] originalHeights = new int[INITIAL_CAPACITY];
+    long[] startTimes = new long[INITIAL_CAPACITY];
+    boolean[] collapsed = new boolean[INITIAL_CAPACITY];
+    // Views below the dismissed ones, only used by CollapseMode.SLIDE
+    View[][] followingViews = new View[INITIAL_CAPACITY][];
+    int[] slideOffsets = new int[INITIAL_CAPACITY];
+    // The positions handed out by getPositions, reused for batches of the same size
+    private int[] batch = new int[0];
+
+    /**
+     * Adds a new pending dismiss at its sorted place.
+     *
+     * @param position       The position of the dismissed item.
+     * @param id             The stable id of the dismissed item or
+     *                       {@link AdapterView#INVALID_ROW_ID}.
+     * @param view           The view of the dismissed item.
+     * @param originalHeight The height of the view before collapsing it.
+     * @param startTime      The animation time the collapse started.
+     * @return The index of the new entry.
+     */
+    int add(int position, long id, View view, int originalHeight, long startTime) {
+        if (size == positions.length) {
+            grow();
+        }
+
+        // Find the insertion point for descending order
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] > position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int moved = size - low;
+        if (moved > 0) {
+            System.arraycopy(positions, low, positions, low + 1, moved);
+            System.arraycopy(ids, low, ids, low + 1, moved);
+            System.arraycopy(views, low, views, low + 1, moved);
+            System.arraycopy(originalHeights, low, originalHeights, low + 1, moved);
+            System.arraycopy(startTimes, low, startTimes, low + 1, moved);
+            System.arraycopy(collapsed, low, collapsed, low + 1, moved);
+            System.arraycopy(followingViews, low, followingViews, low + 1, moved);
+            System.arraycopy(slideOffsets, low, slideOffsets, low + 1, moved);
+        }
+
+        positions[low] = position;
+        ids[low] = id;
+        views[low] = view;
+        originalHeights[low] = originalHeight;
+        startTimes[low] = startTime;
+        collapsed[low] = false;
+        followingViews[low] = null;
+        slideOffsets[low] = 0;
+        size++;
+        return low;
+    }
+
+    /**
+     * Slides the views following the entry at the given index up by the given
+     * offset. The offset is applied relative to the previous one, so multiple
+     * concurrent dismisses can move the same views.
+     *
+     * @param index      The index of the entry.
+     * @param offset     The total offset the views should be moved up.
+     * @param animations The animation implementation to use.
+     */
+    void slide(int index, int offset, AnimationCompat animations) {
+        int delta = offset - slideOffsets[index];
+        for (View following : followingViews[index]) {
+            animations.setTranslationY(following, animations.getTranslationY(following) - delta);
+        }
+        slideOffsets[index] = offset;
+    }
+
+    /**
+     * Updates the positions of all entries with a stable id to the current
+     * positions of their items in the list. Usually the items haven't moved,
+     * which is checked first. Otherwise they are searched in one pass over the
+     * list. Entries whose item isn't in the list anymore get a position of
+     * {@code -1}.
+     * Afterwards the entries are sorted again by descending position, so the
+     * entries with a position of {@code -1} are the last ones.
+     *
+     * @param listView The list containing the items.
+     * @return The number of entries with a valid position.
+     */
+    int resolvePositions(AbsListView listView) {
+        int idCount = 0;
+        int moved = 0;
+        int count = listView.getCount();
+        for (int i = 0; i < size; i++) {
+            if (ids[i] != AdapterView.INVALID_ROW_ID) {
+                idCount++;
+                if (positions[i] < 0 || positions[i] >= count
+                        || listView.getItemIdAtPosition(positions[i]) != ids[i]) {
+                    moved++;
+                }
+            }
+        }
+
+        if (moved > 0) {
+            long[] sortedIds = new long[idCount];
+            for (int i = 0, j = 0; i < size; i++) {
+                if (ids[i] != AdapterView.INVALID_ROW_ID) {
+                    sortedIds[j++] = ids[i];
+                }
+            }
+            Arrays.sort(sortedIds);
+            int[] resolved = new int[idCount];
+            Arrays.fill(resolved, -1);
+
+            int found = 0;
+            for (int position = 0; position < count && found < idCount; position++) {
+                int index = Arrays.binarySearch(sortedIds, listView.getItemIdAtPosition(position));
+                if (index >= 0 && resolved[index] < 0) {
+                    resolved[index] = position;
+                    found++;
+                }
+            }
+
+            for (int i = 0; i < size; i++) {
+                if (ids[i] != AdapterView.INVALID_ROW_ID) {
+                    positions[i] = resolved[Arrays.binarySearch(sortedIds, ids[i])];
+                }
+            }
+            sort();
+        }
+
+        int valid = size;
+        while (valid > 0 && positions[valid - 1] < 0) {
+            valid--;
+        }
+        return valid;
+    }
+
+    /**
+     * Returns the first positions in an array of exactly their number, as the
+     * {@link DismissList.OnBatchDismissCallback} gets them. The array is reused
+     * as long as the same number of positions is requested.
+     *
+     * @param count The number of positions to return.
+     * @return The positions, sorted in descending order.
+     */
+    int[] getPositions(int count) {
+        if (batch.length != count) {
+            batch = new int[count];
+        }
+        System.arraycopy(positions, 0, batch, 0, count);
+        return batch;
+    }
+
+    /**
+     * Removes all entries and releases the views they referenced.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            views[i] = null;
+            followingViews[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Sorts the entries by descending position. There are only a few entries,
+     * that are mostly still sorted, so this uses an insertion sort.
+     */
+    private void sort() {
+        for (int i = 1; i < size; i++) {
+            for (int j = i; j > 0 && positions[j - 1] < positions[j]; j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        int position = positions[i];
+        positions[i] = positions[j];
+        positions[j] = position;
+
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+
+        View view = views[i];
+        views[i] = views[j];
+        views[j] = view;
+
+        int height = originalHeights[i];
+        originalHeights[i] = originalHeights[j];
+        originalHeights[j] = height;
+
+        long startTime = startTimes[i];
+        startTimes[i] = startTimes[j];
+        startTimes[j] = startTime;
+
+        boolean isCollapsed = collapsed[i];
+        collapsed[i] = collapsed[j];
+        collapsed[j] = isCollapsed;
+
+        View[] following = followingViews[i];
+        followingViews[i] = followingViews[j];
+        followingViews[j] = following;
+
+        int slideOffset = slideOffsets[i];
+        slideOffsets[i] = slideOffsets[j];
+        slideOffsets[j] = slideOffset;
+    }
+
+    private void grow() {
+        int capacity = positions.length * 2;
+
+        int[] newPositions = new int[capacity];
+        System.arraycopy(positions, 0, newPositions, 0, size);
+        positions = newPositions;
+
+        long[] newIds = new long[capacity];
+        System.arraycopy(ids, 0, newIds, 0, size);
+        ids = newIds;
+
+        View[] newViews = new View[capacity];
+        System.arraycopy(views, 0, newViews, 0, size);
+        views = newViews;
+
+        int[] newHeights = new int[capacity];
+        System.arraycopy(originalHeights, 0, newHeights, 0, size);
+        originalHeights = newHeights;
+
+        long[] newStartTimes = new long[capacity];
+        System.arraycopy(startTimes, 0, newStartTimes, 0, size);
+        startTimes = newStartTimes;
+
+        boolean[] newCollapsed = new boolean[capacity];
+        System.arraycopy(collapsed, 0, newCollapsed, 0, size);
+        collapsed = newCollapsed;
+
+        View[][] newFollowingViews = new View[capacity][];
+        System.arraycopy(followingViews, 0, newFollowingViews, 0, size);
+        followingViews = newFollowingViews;
+
+        int[] newSlideOffsets = new int[capacity];
+        System.arraycopy(slideOffsets, 0, newSlideOffsets, 0, size);
+        slideOffsets = newSlideOffsets;
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.IBinder;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.AbsListView;
+import android.widget.Button;
+import android.widget.PopupWindow;
+import android.widget.TextView;
+
+/**
+ * The default {@link UndoPresenter}, showing the undo in a {@link PopupWindow}
+ * at the bottom of the list that dismissed the latest item. If that list is
+ * in another window than the one the popup is shown on, the popup is shown
+ * again on the window of the list.
+ */
+public class PopupUndoPresenter implements UndoPresenter {
+
+    private Host mHost;
+
+    // The undo popup is only created, when it has to be shown for the first time
+    private PopupWindow mUndoPopup;
+    private TextView mUndoText;
+    private Button mUndoButton;
+    private float mDensity;
+
+    // The text and label currently set on the popup, to skip unchanged updates
+    private String mShownText;
+    private String mShownLabel;
+
+    // The bottom offset of the popup for mOffsetView, invalidated when the
+    // list or its window are moved or resized while the popup is shown
+    private AbsListView mOffsetView;
+    private int mPopupOffset;
+    private boolean mPopupOffsetValid;
+    private int mShownOffset;
+    // The window the popup is attached to while it's showing
+    private IBinder mShownWindow;
+    private final int[] mLocation = new int[2];
+    private BoundsWatcher mBoundsWatcher;
+
+    /**
+     * Invalidates the popup offset when the list or its root view change
+     * their vertical bounds. Layouts inside the list, like the frames of a
+     * collapse, don't affect the offset.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private class BoundsWatcher implements View.OnLayoutChangeListener {
+
+        private View mList;
+        private View mRoot;
+
+        void watch(View list) {
+            if (mList == list) {
+                return;
+            }
+            stop();
+            mList = list;
+            mRoot = list.getRootView();
+            mList.addOnLayoutChangeListener(this);
+            if (mRoot != mList) {
+                mRoot.addOnLayoutChangeListener(this);
+            }
+        }
+
+        void stop() {
+            if (mList != null) {
+                mList.removeOnLayoutChangeListener(this);
+                mRoot.removeOnLayoutChangeListener(this);
+                mList = null;
+                mRoot = null;
+            }
+        }
+
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            if (top != oldTop || bottom != oldBottom) {
+                mPopupOffsetValid = false;
+            }
+        }
+
+    }
+
+    public void setHost(Host host) {
+        mHost = host;
+    }
+
+    public void show(AbsListView listView, int position, CharSequence text, CharSequence buttonLabel) {
+        ensureUndoPopup(listView);
+        update(text, buttonLabel);
+
+        int offset = getPopupOffset(listView);
+        IBinder window = listView.getWindowToken();
+        if (mUndoPopup.isShowing() && window != mShownWindow) {
+            // The list is in another window, so the popup has to be attached anew
+            mUndoPopup.dismiss();
+        }
+        if (mUndoPopup.isShowing()) {
+            // Only move the popup, if the list has been laid out differently
+            if (offset != mShownOffset) {
+                mUndoPopup.update(0, offset, -1, -1);
+                mShownOffset = offset;
+            }
+        } else {
+            mUndoPopup.showAtLocation(listView,
+                    Gravity.CENTER_HORIZONTAL | Gravity.BOTTOM,
+                    0, offset);
+            mShownOffset = offset;
+            mShownWindow = window;
+        }
+    }
+
+    public void update(CharSequence text, CharSequence buttonLabel) {
+        if (mUndoPopup == null) {
+            return;
+        }
+        if (mShownText == null || !mShownText.contentEquals(text)) {
+            mShownText = text.toString();
+            mUndoText.setText(mShownText);
+        }
+        if (mShownLabel == null || !mShownLabel.contentEquals(buttonLabel)) {
+            mShownLabel = buttonLabel.toString();
+            mUndoButton.setText(mShownLabel);
+        }
+    }
+
+    public void hide() {
+        if (mUndoPopup != null) {
+            mUndoPopup.dismiss();
+        }
+        mShownWindow = null;
+        if (mBoundsWatcher != null) {
+            mBoundsWatcher.stop();
+        }
+        // The layout isn't watched while the popup is hidden
+        mPopupOffsetValid = false;
+    }
+
+    public boolean isShowing() {
+        return mUndoPopup != null && mUndoPopup.isShowing();
+    }
+
+    /**
+     * Returns the offset of the undo popup from the bottom of the window.
+     * From Honeycomb on the offset is cached until the list or its window
+     * change their bounds or the popup is hidden. Before, it's computed on
+     * every call.
+     */
+    private int getPopupOffset(AbsListView listView) {
+        if (mOffsetView != listView) {
+            mOffsetView = listView;
+            mPopupOffsetValid = false;
+        }
+
+        if (!mPopupOffsetValid) {
+            int rootBottom = getBottom(listView.getRootView(), mLocation);
+            int listBottom = getBottom(listView, mLocation);
+            mPopupOffset = (int) (mDensity * 15) + rootBottom - listBottom;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                if (mBoundsWatcher == null) {
+                    mBoundsWatcher = new BoundsWatcher();
+                }
+                mBoundsWatcher.watch(listView);
+                mPopupOffsetValid = true;
+            }
+        }
+        return mPopupOffset;
+    }
+
+    /**
+     * Creates the undo popup, if it hasn't been created yet.
+     */
+    private void ensureUndoPopup(AbsListView listView) {
+        if (mUndoPopup != null) {
+            return;
+        }
+
+        Context context = listView.getContext();
+        mDensity = context.getResources().getDisplayMetrics().density;
+
+        LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        View v = inflater.inflate(R.layout.undo_popup, null);
+        mUndoButton = (Button) v.findViewById(R.id.undo);
+        mUndoButton.setOnClickListener(new View.OnClickListener() {
+            public void onClick(View v) {
+                mHost.onUndoClick();
+            }
+        });
+        mUndoButton.setOnTouchListener(new View.OnTouchListener() {
+            public boolean onTouch(View v, MotionEvent event) {
+                // If user tabs "undo" button, reset delay time to remove popup
+                mHost.onUndoTouch();
+                return false;
+            }
+        });
+        mUndoText = (TextView) v.findViewById(R.id.text);
+
+        mUndoPopup = new PopupWindow(v);
+        mUndoPopup.setAnimationStyle(R.style.fade_animation);
+        // Get screen width in dp and set width respectively
+        int xdensity = (int) (context.getResources().getDisplayMetrics().widthPixels / mDensity);
+        if (xdensity < 300) {
+            mUndoPopup.setWidth((int) (mDensity * 280));
+        } else if (xdensity < 350) {
+            mUndoPopup.setWidth((int) (mDensity * 300));
+        } else if (xdensity < 500) {
+            mUndoPopup.setWidth((int) (mDensity * 330));
+        } else {
+            mUndoPopup.setWidth((int) (mDensity * 450));
+        }
+        mUndoPopup.setHeight((int) (mDensity * 56));
+    }
+
+    private static int getBottom(View view, int[] point) {
+        view.getLocationInWindow(point);
+        return point[1] + view.getHeight();
+    }
+
+}
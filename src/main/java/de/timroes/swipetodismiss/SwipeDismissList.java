@@ -16,27 +16,25 @@
 package de.timroes.swipetodismiss;
 
 import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.content.Context;
 import android.graphics.Rect;
 import android.os.Build;
+import android.os.SystemClock;
+import android.view.Choreographer;
 import android.view.MotionEvent;
-import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
 import android.widget.AbsListView;
+import android.widget.Adapter;
+import android.widget.AdapterView;
 import android.widget.ListView;
 
-import com.nineoldandroids.animation.Animator;
-import com.nineoldandroids.animation.AnimatorListenerAdapter;
-import com.nineoldandroids.animation.ValueAnimator;
-
-import java.util.SortedSet;
-import java.util.TreeSet;
-
-import static com.nineoldandroids.view.ViewHelper.setAlpha;
-import static com.nineoldandroids.view.ViewHelper.setTranslationX;
-import static com.nineoldandroids.view.ViewPropertyAnimator.animate;
-
 /**
  * A {@link android.view.View.OnTouchListener} that makes the list items in a
  * {@link ListView} dismissable. {@link ListView} is given special treatment
@@ -58,17 +56,34 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
     protected int mViewWidth = 1; // 1 and not 0 to prevent dividing by zero
 
     // Transient properties
-    protected final SortedSet<PendingDismissData> mPendingDismisses = new TreeSet<PendingDismissData>();
+    protected final PendingDismissQueue mPendingDismisses = new PendingDismissQueue();
     protected int mDismissAnimationRefCount = 0;
-    protected float mDownX;
-    protected boolean mSwiping;
-    protected VelocityTracker mVelocityTracker;
+    protected AnimationCompat mAnimations = AnimationCompat.get(true);
+    protected AnimationCompat.Ticker mCollapseAnimator;
+    protected final Interpolator mCollapseInterpolator = new AccelerateDecelerateInterpolator();
+    protected final SwipeGesture mGesture;
     protected int mDownPosition;
+    protected long mDownItemId;
+    protected int mActivePointerId;
     protected View mDownView;
     protected boolean mPaused;
     protected boolean mSwipeDisabled;
 
+    // Scratch objects reused by every hit test, so touch down doesn't allocate
+    private final Rect mHitRect = new Rect();
+    private final int[] mListViewCoords = new int[2];
+
     private SwipeDirection mSwipeDirection = SwipeDirection.BOTH;
+    private CollapseMode mCollapseMode = CollapseMode.RESIZE;
+    private FrameAlignedSwipe mFrameAlignedSwipe;
+    private TouchTrace mTouchTrace;
+
+    // Only measured while a metrics listener is set
+    private SwipeFrameMonitor mSwipeFrameMonitor;
+    private float mFrameInterval = 1000f / 60;
+    private long mLastCollapseFrameTime = -1;
+    private long mCollapseStartTime = -1;
+    private long mOldestUpTime = -1;
 
     /**
      * Defines the direction in which the swipe to delete can be done. The default
@@ -97,6 +112,26 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
         END
     }
 
+    /**
+     * Defines how the gap of a dismissed item is closed. The default is
+     * {@link CollapseMode#RESIZE}. Use {@link #setCollapseMode(de.timroes.swipetodismiss.SwipeDismissList.CollapseMode)}
+     * to set the mode.
+     */
+    public enum CollapseMode {
+        /**
+         * The height of the dismissed item is animated down to zero. This
+         * works for every kind of list, but requires a layout of the list
+         * on every animation frame.
+         */
+        RESIZE,
+        /**
+         * The items below the dismissed item slide up over it. The list is
+         * only laid out once, when the animation has finished. This mode is
+         * meant for lists showing one item per row like {@link ListView}.
+         */
+        SLIDE
+    }
+
     /**
      * Constructs a new swipe-to-dismiss touch listener for the given list view.
      *
@@ -117,7 +152,21 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
      * @param mode     The mode this list handles multiple undos.
      */
     public SwipeDismissList(AbsListView listView, OnDismissCallback callback, UndoMode mode) {
-        super(listView, callback, mode);
+        this(listView, callback, new UndoCoordinator(mode));
+    }
+
+    /**
+     * Constructs a new swipe-to-dismiss touch listener for the given list view,
+     * sharing the undo popup and the stored undos with all other lists using
+     * the same {@link UndoCoordinator}.
+     *
+     * @param listView    The list view whose items should be dismissable.
+     * @param callback    The callback to trigger when the user has indicated that
+     *                    she would like to dismiss one or more list items.
+     * @param coordinator The coordinator showing the undo popup for this list.
+     */
+    public SwipeDismissList(AbsListView listView, OnDismissCallback callback, UndoCoordinator coordinator) {
+        super(listView, callback, coordinator);
 
         ViewConfiguration vc = ViewConfiguration.get(listView.getContext());
         mSlop = vc.getScaledTouchSlop();
@@ -125,6 +174,7 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
         mMaxFlingVelocity = vc.getScaledMaximumFlingVelocity();
         mAnimationTime = listView.getContext().getResources().getInteger(
                 android.R.integer.config_shortAnimTime);
+        mGesture = new SwipeGesture(mSlop, mMinFlingVelocity, mMaxFlingVelocity);
 
         mListView.setOnTouchListener(this);
         mListView.setOnScrollListener(this.makeScrollListener());
@@ -137,7 +187,7 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
      * @param delay Delay in milliseconds.
      */
     public void setAutoHideDelay(int delay) {
-        mAutoHideDelay = delay;
+        mCoordinator.setAutoHideDelay(delay);
     }
 
     /**
@@ -161,6 +211,88 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
         mSwipeDirection = direction;
     }
 
+    /**
+     * Sets the way the gap of a dismissed item is closed. By default this is
+     * set to {@link CollapseMode#RESIZE}.
+     *
+     * @param mode The collapse mode to use for further dismisses.
+     */
+    public void setCollapseMode(CollapseMode mode) {
+        mCollapseMode = mode;
+    }
+
+    /**
+     * Sets whether the framework animation classes should be used on API
+     * level 12 and above. This is enabled by default. If disabled, all
+     * animations run through NineOldAndroids, which is always used on older
+     * devices. This should be called before any item has been dismissed.
+     *
+     * @param preferNative Whether to use the framework animations if available.
+     */
+    public void setNativeAnimations(boolean preferNative) {
+        if (mCollapseAnimator != null && mCollapseAnimator.isStarted()) {
+            throw new IllegalStateException("Cannot change animations while items are dismissed.");
+        }
+        mAnimations = AnimationCompat.get(preferNative);
+        mCollapseAnimator = null;
+    }
+
+    /**
+     * Enables or disables frame aligned swiping. If enabled, the translation
+     * of a swiped item isn't applied for every touch event, but only once per
+     * display frame using the latest position of the swipe. This prevents
+     * invalidating the item multiple times per frame on devices that deliver
+     * touch events faster than the display refreshes. Frame aligned swiping
+     * requires API level 16. On older devices swipes are always applied
+     * directly.
+     *
+     * @param enabled Whether to apply swipes once per frame.
+     */
+    public void setFrameAlignedSwipe(boolean enabled) {
+        if (mFrameAlignedSwipe != null) {
+            mFrameAlignedSwipe.cancel();
+            mFrameAlignedSwipe = null;
+        }
+        if (enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameAlignedSwipe = new FrameAlignedSwipe();
+        }
+    }
+
+    /**
+     * Records the touch events of all swipes and the decisions taken for them
+     * into the given {@link TouchTrace}, so they can be replayed offline with a
+     * {@link TouchTraceReplayer}. Recording is disabled by default.
+     *
+     * @param trace The trace to record into, or {@code null} to stop recording.
+     */
+    public void setTouchTrace(TouchTrace trace) {
+        mTouchTrace = trace;
+    }
+
+    @Override
+    public void setMetricsListener(MetricsListener listener) {
+        super.setMetricsListener(listener);
+        if (listener != null) {
+            WindowManager wm = (WindowManager) mListView.getContext()
+                    .getSystemService(Context.WINDOW_SERVICE);
+            float refreshRate = wm.getDefaultDisplay().getRefreshRate();
+            mFrameInterval = 1000f / (refreshRate > 0 ? refreshRate : 60);
+        }
+        if (mSwipeFrameMonitor != null) {
+            mSwipeFrameMonitor.stop();
+            mSwipeFrameMonitor = null;
+        }
+        if (listener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mSwipeFrameMonitor = new SwipeFrameMonitor();
+            if (mGesture.isSwiping()) {
+                mSwipeFrameMonitor.start();
+            }
+        }
+        mLastCollapseFrameTime = -1;
+        mCollapseStartTime = -1;
+        mOldestUpTime = -1;
+    }
+
     /**
      * Returns an {@link android.widget.AbsListView.OnScrollListener} to be
      * added to the {@link ListView} using
@@ -191,6 +323,7 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
 
         if (mViewWidth < 2) {
             mViewWidth = mListView.getWidth();
+            mGesture.setWidth(mViewWidth);
         }
 
         switch (motionEvent.getActionMasked()) {
@@ -201,119 +334,156 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
 
                 // TODO: ensure this is a finger, and set a flag
 
-                // Find the child view that was touched (perform a hit test)
-                Rect rect = new Rect();
-                int childCount = mListView.getChildCount();
-                int[] listViewCoords = new int[2];
-                mListView.getLocationOnScreen(listViewCoords);
-                int x = (int) motionEvent.getRawX() - listViewCoords[0];
-                int y = (int) motionEvent.getRawY() - listViewCoords[1];
-                View child;
-                for (int i = 0; i < childCount; i++) {
-                    child = mListView.getChildAt(i);
-                    child.getHitRect(rect);
-                    if (rect.contains(x, y)) {
-                        mDownView = child;
-                        break;
-                    }
+                // A previous gesture that never finished must not leak its state
+                if (mGesture.isTracking()) {
+                    cancelSwipe(motionEvent);
                 }
 
+                // Find the child view that was touched (perform a hit test)
+                mDownView = findChildAt(motionEvent.getRawX(), motionEvent.getRawY());
+
                 if (mDownView != null) {
-                    mDownX = motionEvent.getRawX();
                     mDownPosition = mListView.getPositionForView(mDownView);
+                    if (!isSwipeable(mDownPosition)) {
+                        mDownView = null;
+                        mDownPosition = ListView.INVALID_POSITION;
+                    }
+                }
 
-                    mVelocityTracker = VelocityTracker.obtain();
-                    mVelocityTracker.addMovement(motionEvent);
+                if (mDownView != null) {
+                    mDownItemId = getStableItemId(mDownPosition);
+                    mActivePointerId = motionEvent.getPointerId(0);
+
+                    // The layout direction might have changed since the last gesture
+                    boolean allowLeft = isDirectionValid(-1);
+                    boolean allowRight = isDirectionValid(1);
+                    mGesture.setDirections(allowLeft, allowRight);
+                    SwipeGesture.Decision decision = mGesture.down(motionEvent.getRawX(),
+                            motionEvent.getRawY(), motionEvent.getEventTime());
+                    if (mTouchTrace != null) {
+                        mTouchTrace.setConfiguration(mSlop, mMinFlingVelocity, mMaxFlingVelocity,
+                                mGesture.getWidth(), allowLeft, allowRight);
+                        record(TouchTrace.ACTION_DOWN, motionEvent, decision);
+                    }
                 }
                 view.onTouchEvent(motionEvent);
                 return true;
             }
 
             case MotionEvent.ACTION_UP: {
-                if (mVelocityTracker == null) {
+                if (!mGesture.isTracking()) {
                     break;
                 }
 
-                float deltaX = motionEvent.getRawX() - mDownX;
-                mVelocityTracker.addMovement(motionEvent);
-                mVelocityTracker.computeCurrentVelocity(1000);
-                float velocityX = Math.abs(mVelocityTracker.getXVelocity());
-                float velocityY = Math.abs(mVelocityTracker.getYVelocity());
-                boolean dismiss = false;
-                boolean dismissRight = false;
-                if (Math.abs(deltaX) > mViewWidth / 2 && mSwiping) {
-                    dismiss = true;
-                    dismissRight = deltaX > 0;
-                } else if (mMinFlingVelocity <= velocityX && velocityX <= mMaxFlingVelocity
-                        && velocityY < velocityX && mSwiping && isDirectionValid(mVelocityTracker.getXVelocity())
-                        && deltaX >= mViewWidth * 0.2f) {
-                    dismiss = true;
-                    dismissRight = mVelocityTracker.getXVelocity() > 0;
+                cancelPendingFrame();
+                SwipeGesture.Decision decision = mGesture.up(motionEvent.getRawX(),
+                        motionEvent.getRawY(), motionEvent.getEventTime());
+                if (mTouchTrace != null) {
+                    record(TouchTrace.ACTION_UP, motionEvent, decision);
                 }
-                if (dismiss) {
+                if (decision == SwipeGesture.Decision.DISMISS_LEFT
+                        || decision == SwipeGesture.Decision.DISMISS_RIGHT) {
+                    boolean dismissRight = decision == SwipeGesture.Decision.DISMISS_RIGHT;
+                    if (mMetrics != null && mOldestUpTime < 0) {
+                        mOldestUpTime = motionEvent.getEventTime();
+                    }
                     // dismiss
                     final View downView = mDownView; // mDownView gets null'd before animation ends
                     final int downPosition = mDownPosition;
+                    final long downItemId = mDownItemId;
                     ++mDismissAnimationRefCount;
-                    animate(mDownView)
-                            .translationX(dismissRight ? mViewWidth : -mViewWidth)
-                            .alpha(0)
-                            .setDuration(mAnimationTime)
-                            .setListener(new AnimatorListenerAdapter() {
-                                @Override
-                                public void onAnimationEnd(Animator animation) {
-                                    performDismiss(downView, downPosition);
+                    mAnimations.animate(mDownView, dismissRight ? mViewWidth : -mViewWidth, 0,
+                            mAnimationTime, new Runnable() {
+                                public void run() {
+                                    performDismiss(downView, downPosition, downItemId);
                                 }
                             });
                 } else {
                     // cancel
-                    animate(mDownView)
-                            .translationX(0)
-                            .alpha(1)
-                            .setDuration(mAnimationTime)
-                            .setListener(null);
+                    animateBack(mDownView);
+                }
+                resetSwipeState();
+                break;
+            }
+
+            case MotionEvent.ACTION_CANCEL: {
+                if (!mGesture.isTracking()) {
+                    break;
+                }
+                cancelSwipe(motionEvent);
+                break;
+            }
+
+            case MotionEvent.ACTION_POINTER_UP: {
+                if (!mGesture.isTracking()) {
+                    break;
+                }
+                // Only the pointer that started the swipe is tracked, so lifting it
+                // ends the swipe without dismissing the item.
+                int pointerId = motionEvent.getPointerId(motionEvent.getActionIndex());
+                if (pointerId == mActivePointerId) {
+                    cancelSwipe(motionEvent);
                 }
-                mVelocityTracker = null;
-                mDownX = 0;
-                mDownView = null;
-                mDownPosition = ListView.INVALID_POSITION;
-                mSwiping = false;
                 break;
             }
 
             case MotionEvent.ACTION_MOVE: {
                 hidePopup();
 
-                if (mVelocityTracker == null || mPaused) {
+                if (!mGesture.isTracking() || mPaused) {
                     break;
                 }
 
-                mVelocityTracker.addMovement(motionEvent);
-                float deltaX = motionEvent.getRawX() - mDownX;
-                // Only start swipe in correct direction
-                if (isDirectionValid(deltaX)) {
-                    if (Math.abs(deltaX) > mSlop) {
-                        mSwiping = true;
-                        mListView.requestDisallowInterceptTouchEvent(true);
-
-                        // Cancel ListView's touch (un-highlighting the item)
-                        MotionEvent cancelEvent = MotionEvent.obtain(motionEvent);
-                        cancelEvent.setAction(MotionEvent.ACTION_CANCEL
-                                | (motionEvent.getActionIndex()
-                                << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
-                        mListView.onTouchEvent(cancelEvent);
+                // Feed the samples batched since the last event too, so the
+                // velocity is measured at the rate of the touch screen
+                float offsetX = motionEvent.getRawX() - motionEvent.getX();
+                float offsetY = motionEvent.getRawY() - motionEvent.getY();
+                boolean started = false;
+                boolean moved = false;
+                int historySize = motionEvent.getHistorySize();
+                for (int i = 0; i <= historySize; i++) {
+                    float x;
+                    float y;
+                    long time;
+                    if (i < historySize) {
+                        x = motionEvent.getHistoricalX(i) + offsetX;
+                        y = motionEvent.getHistoricalY(i) + offsetY;
+                        time = motionEvent.getHistoricalEventTime(i);
+                    } else {
+                        x = motionEvent.getRawX();
+                        y = motionEvent.getRawY();
+                        time = motionEvent.getEventTime();
                     }
-                } else {
-                    // If we swiped into wrong direction, act like this was the new
-                    // touch down point
-                    mDownX = motionEvent.getRawX();
-                    deltaX = 0;
+                    SwipeGesture.Decision decision = mGesture.move(x, y, time);
+                    if (mTouchTrace != null) {
+                        mTouchTrace.record(TouchTrace.ACTION_MOVE, time, x, y, decision);
+                    }
+                    started |= decision == SwipeGesture.Decision.START;
+                    moved |= decision != SwipeGesture.Decision.NONE;
                 }
 
-                if (mSwiping) {
-                    setTranslationX(mDownView, deltaX);
-                    setAlpha(mDownView, Math.max(0f, Math.min(1f,
-                            1f - 2f * Math.abs(deltaX) / mViewWidth)));
+                if (started) {
+                    mListView.requestDisallowInterceptTouchEvent(true);
+                    if (mSwipeFrameMonitor != null) {
+                        mSwipeFrameMonitor.start();
+                    }
+
+                    // Cancel ListView's touch (un-highlighting the item)
+                    MotionEvent cancelEvent = MotionEvent.obtain(motionEvent);
+                    cancelEvent.setAction(MotionEvent.ACTION_CANCEL
+                            | (motionEvent.getActionIndex()
+                            << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
+                    mListView.onTouchEvent(cancelEvent);
+                    cancelEvent.recycle();
+                }
+
+                if (moved) {
+                    float deltaX = mGesture.getDeltaX();
+                    if (mFrameAlignedSwipe != null) {
+                        mFrameAlignedSwipe.post(mDownView, deltaX);
+                    } else {
+                        applySwipe(mDownView, deltaX);
+                    }
                     return true;
                 }
                 break;
@@ -322,6 +492,109 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
         return false;
     }
 
+    /**
+     * Aborts the current swipe, animates the touched item back into place and
+     * resets the swipe state.
+     *
+     * @param motionEvent The event causing the swipe to be aborted.
+     */
+    private void cancelSwipe(MotionEvent motionEvent) {
+        cancelPendingFrame();
+        if (mDownView != null) {
+            animateBack(mDownView);
+        }
+        SwipeGesture.Decision decision = mGesture.cancel();
+        if (mTouchTrace != null) {
+            record(TouchTrace.ACTION_CANCEL, motionEvent, decision);
+        }
+        resetSwipeState();
+    }
+
+    private void record(byte action, MotionEvent motionEvent, SwipeGesture.Decision decision) {
+        mTouchTrace.record(action, motionEvent.getEventTime(),
+                motionEvent.getRawX(), motionEvent.getRawY(), decision);
+    }
+
+    /**
+     * Resets the state of the current gesture.
+     */
+    private void resetSwipeState() {
+        if (mSwipeFrameMonitor != null) {
+            mSwipeFrameMonitor.stop();
+        }
+        mGesture.cancel();
+        mDownView = null;
+        mDownPosition = ListView.INVALID_POSITION;
+        mDownItemId = AdapterView.INVALID_ROW_ID;
+        mActivePointerId = MotionEvent.INVALID_POINTER_ID;
+    }
+
+    /**
+     * Moves the swiped view to the given delta and fades it out respectively.
+     *
+     * @param view   The view being swiped.
+     * @param deltaX The delta of the x coordinate of the swipe.
+     */
+    private void applySwipe(View view, float deltaX) {
+        mAnimations.setTranslationX(view, deltaX);
+        mAnimations.setAlpha(view, Math.max(0f, Math.min(1f,
+                1f - 2f * Math.abs(deltaX) / mViewWidth)));
+    }
+
+    /**
+     * Reports the frames dropped since the last frame of an animation to the
+     * metrics listener.
+     *
+     * @param lastTime   The time of the last frame, or {@code -1} if this is
+     *                   the first frame.
+     * @param time       The time of this frame.
+     * @param collapsing Whether the frame belongs to a collapse or a swipe.
+     * @return The time of this frame.
+     */
+    private long trackFrame(long lastTime, long time, boolean collapsing) {
+        if (lastTime >= 0) {
+            int dropped = Math.round((time - lastTime) / mFrameInterval) - 1;
+            if (dropped > 0) {
+                mMetrics.onFramesDropped(dropped, collapsing);
+            }
+        }
+        return time;
+    }
+
+    private void cancelPendingFrame() {
+        if (mFrameAlignedSwipe != null) {
+            mFrameAlignedSwipe.cancel();
+        }
+    }
+
+    private void animateBack(View view) {
+        mAnimations.animate(view, 0, 1, mAnimationTime, null);
+    }
+
+    /**
+     * Finds the child of the list view at the given screen coordinates. This
+     * runs on every touch down and must not allocate.
+     *
+     * @param rawX The x coordinate on the screen.
+     * @param rawY The y coordinate on the screen.
+     * @return The child at that point or {@code null} if there is none.
+     */
+    private View findChildAt(float rawX, float rawY) {
+        mListView.getLocationOnScreen(mListViewCoords);
+        int x = (int) rawX - mListViewCoords[0];
+        int y = (int) rawY - mListViewCoords[1];
+        int childCount = mListView.getChildCount();
+        View child;
+        for (int i = 0; i < childCount; i++) {
+            child = mListView.getChildAt(i);
+            child.getHitRect(mHitRect);
+            if (mHitRect.contains(x, y)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
     /**
      * Checks whether the delta of a swipe indicates, that the swipe is in the
      * correct direction, regarding the direction set via
@@ -354,71 +627,219 @@ public class SwipeDismissList extends DismissList implements View.OnTouchListene
 
     }
 
-    class PendingDismissData implements Comparable<PendingDismissData> {
+    /**
+     * Returns whether the item at the given position can be swiped. The undo
+     * row of an {@link InlineUndoPresenter} can't be dismissed.
+     *
+     * @param position The position of the item.
+     * @return Whether the item can be swiped.
+     */
+    private boolean isSwipeable(int position) {
+        return position != ListView.INVALID_POSITION
+                && mListView.getItemIdAtPosition(position) != InlineUndoPresenter.UNDO_ROW_ID;
+    }
 
-        public int position;
-        public View view;
+    /**
+     * Returns the id of the item at the given position, if the adapter of the
+     * list has stable ids.
+     *
+     * @param position The position of the item.
+     * @return The id of the item or {@link AdapterView#INVALID_ROW_ID} if the
+     * ids aren't stable.
+     */
+    private long getStableItemId(int position) {
+        Adapter adapter = mListView.getAdapter();
+        if (adapter == null || !adapter.hasStableIds() || position == ListView.INVALID_POSITION) {
+            return AdapterView.INVALID_ROW_ID;
+        }
+        return mListView.getItemIdAtPosition(position);
+    }
 
-        public PendingDismissData(int position, View view) {
-            this.position = position;
-            this.view = view;
+    private void performDismiss(final View dismissView, final int dismissPosition,
+                                final long dismissItemId) {
+        // Collapse the dismissed list item and fire the dismiss callback when all dismissed
+        // list item animations have completed. All pending collapses are driven by one
+        // shared animator, see onCollapseFrame().
+
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        int pending = mPendingDismisses.add(dismissPosition, dismissItemId, dismissView,
+                dismissView.getHeight(), now);
+
+        if (mCollapseMode == CollapseMode.SLIDE) {
+            int index = mListView.indexOfChild(dismissView);
+            int count = Math.max(0, mListView.getChildCount() - index - 1);
+            View[] followingViews = new View[count];
+            for (int i = 0; i < count; i++) {
+                followingViews[i] = mListView.getChildAt(index + 1 + i);
+            }
+            mPendingDismisses.followingViews[pending] = followingViews;
         }
 
-        @Override
-        public int compareTo(PendingDismissData other) {
-            // Sort by descending position
-            return other.position - position;
+        if (mCollapseAnimator == null) {
+            mCollapseAnimator = mAnimations.newTicker(mAnimationTime, new Runnable() {
+                public void run() {
+                    onCollapseFrame();
+                }
+            });
+        }
+        if (!mCollapseAnimator.isStarted()) {
+            if (mMetrics != null) {
+                mCollapseStartTime = now;
+                mLastCollapseFrameTime = -1;
+            }
+            mCollapseAnimator.start();
         }
     }
 
-    private void performDismiss(final View dismissView, final int dismissPosition) {
-        // Animate the dismissed list item to zero-height and fire the dismiss callback when
-        // all dismissed list item animations have completed. This triggers layout on each animation
-        // frame; in the future we may want to do something smarter and more performant.
+    /**
+     * Advances all pending collapses by one frame. In {@link CollapseMode#RESIZE}
+     * the heights of all collapsing items are changed together, so the list is
+     * laid out once per frame no matter how many items collapse. As soon as the
+     * last dismiss animation has finished, all pending dismisses are processed.
+     */
+    private void onCollapseFrame() {
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        final PendingDismissQueue pending = mPendingDismisses;
+        if (mMetrics != null) {
+            mLastCollapseFrameTime = trackFrame(mLastCollapseFrameTime, now, true);
+        }
+        for (int i = 0; i < pending.size; i++) {
+            if (pending.collapsed[i]) {
+                continue;
+            }
+            float fraction = mAnimationTime > 0
+                    ? (float) (now - pending.startTimes[i]) / mAnimationTime : 1f;
+            if (fraction >= 1f) {
+                fraction = 1f;
+                pending.collapsed[i] = true;
+                --mDismissAnimationRefCount;
+            }
+            int offset = (int) (pending.originalHeights[i]
+                    * mCollapseInterpolator.getInterpolation(fraction));
+            if (pending.followingViews[i] != null) {
+                pending.slide(i, offset, mAnimations);
+            } else {
+                pending.views[i].getLayoutParams().height =
+                        Math.max(1, pending.originalHeights[i] - offset);
+                pending.views[i].requestLayout();
+            }
+        }
 
-        final ViewGroup.LayoutParams lp = dismissView.getLayoutParams();
-        final int originalHeight = dismissView.getHeight();
+        if (mDismissAnimationRefCount == 0) {
+            // No active animations, process all pending dismisses.
+            mCollapseAnimator.stop();
+            if (mMetrics != null && mCollapseStartTime >= 0) {
+                mMetrics.onCollapseFinished(pending.size, now - mCollapseStartTime);
+            }
+            mCollapseStartTime = -1;
+
+            // The adapter might have changed since the items were swiped, so look up
+            // the current positions of items with stable ids
+            int dismissCount = pending.resolvePositions(mListView);
+            if (dismissCount > 0) {
+                if (mMetrics != null && mOldestUpTime >= 0) {
+                    mMetrics.onDismissDelivered(dismissCount,
+                            SystemClock.uptimeMillis() - mOldestUpTime);
+                }
+                dismiss(pending.getPositions(dismissCount));
+            }
+            mOldestUpTime = -1;
+
+            ViewGroup.LayoutParams lp;
+            for (int i = 0; i < pending.size; i++) {
+                // Reset view presentation
+                View view = pending.views[i];
+                mAnimations.setAlpha(view, 1f);
+                mAnimations.setTranslationX(view, 0);
+                if (pending.followingViews[i] != null) {
+                    for (View following : pending.followingViews[i]) {
+                        mAnimations.setTranslationY(following, 0);
+                    }
+                } else {
+                    lp = view.getLayoutParams();
+                    lp.height = pending.originalHeights[i];
+                    view.setLayoutParams(lp);
+                }
+            }
 
-        ValueAnimator animator = ValueAnimator.ofInt(originalHeight, 1).setDuration(mAnimationTime);
+            pending.clear();
+        }
+    }
 
-        animator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                --mDismissAnimationRefCount;
-                if (mDismissAnimationRefCount == 0) {
-                    // No active animations, process all pending dismisses.
-                    int[] dismissPositions = new int[mPendingDismisses.size()];
-                    int i = 0;
-                    for (PendingDismissData dismiss : mPendingDismisses) {
-                        dismissPositions[i++] = dismiss.position;
-                    }
-                    dismiss(dismissPositions);
-
-                    ViewGroup.LayoutParams lp;
-                    for (PendingDismissData pendingDismiss : mPendingDismisses) {
-                        // Reset view presentation
-                        setAlpha(pendingDismiss.view, 1f);
-                        setTranslationX(pendingDismiss.view, 0);
-                        lp = pendingDismiss.view.getLayoutParams();
-                        lp.height = originalHeight;
-                        pendingDismiss.view.setLayoutParams(lp);
-                    }
+    /**
+     * Applies the latest swipe position once per frame using a
+     * {@link Choreographer} frame callback.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class FrameAlignedSwipe implements Choreographer.FrameCallback {
+
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+        private View mView;
+        private float mDeltaX;
+        private boolean mPosted;
+
+        void post(View view, float deltaX) {
+            mView = view;
+            mDeltaX = deltaX;
+            if (!mPosted) {
+                mChoreographer.postFrameCallback(this);
+                mPosted = true;
+            }
+        }
 
-                    mPendingDismisses.clear();
-                }
+        void cancel() {
+            if (mPosted) {
+                mChoreographer.removeFrameCallback(this);
+                mPosted = false;
             }
-        });
+            mView = null;
+        }
 
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator valueAnimator) {
-                lp.height = (Integer) valueAnimator.getAnimatedValue();
-                dismissView.setLayoutParams(lp);
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mPosted = false;
+            if (mView != null) {
+                applySwipe(mView, mDeltaX);
             }
-        });
+        }
+
+    }
+
+    /**
+     * Measures the frames dropped while an item is swiped. The frame callback
+     * is posted again for every frame until the swipe ends, so a pause of the
+     * finger doesn't count as dropped frames, only a late frame does.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class SwipeFrameMonitor implements Choreographer.FrameCallback {
+
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+        private long mLastFrameTime = -1;
+        private boolean mRunning;
+
+        void start() {
+            if (!mRunning) {
+                mRunning = true;
+                mLastFrameTime = -1;
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+
+        void stop() {
+            if (mRunning) {
+                mChoreographer.removeFrameCallback(this);
+                mRunning = false;
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mMetrics != null) {
+                mLastFrameTime = trackFrame(mLastFrameTime, frameTimeNanos / 1000000, false);
+            }
+            mChoreographer.postFrameCallback(this);
+        }
 
-        mPendingDismisses.add(new PendingDismissData(dismissPosition, dismissView));
-        animator.start();
     }
 
     /**
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+/**
+ * Decides whether a touch gesture is a swipe that should dismiss an item.
+ * This class doesn't depend on any Android classes, so it can be used on a
+ * plain JVM and for views other than {@link android.widget.AbsListView}.
+ * <p/>
+ * Feed it the timestamped coordinates of a single pointer using
+ * {@link #down(float, float, long)}, {@link #move(float, float, long)} and
+ * {@link #up(float, float, long)}. Each call returns a {@link Decision} telling
+ * the caller what to do with the touched view. The velocity of the gesture is
+ * estimated from the samples of the last {@value #VELOCITY_HORIZON} ms, which
+ * are kept in a preallocated ring buffer, so feeding samples never allocates.
+ */
+public class SwipeGesture {
+
+    /**
+     * The time in milliseconds of the samples used to estimate the velocity.
+     */
+    public static final int VELOCITY_HORIZON = 100;
+
+    private static final int MAX_SAMPLES = 20;
+
+    /**
+     * The decision taken for a touch sample.
+     */
+    public enum Decision {
+        /**
+         * Nothing to do, the gesture isn't a swipe (yet).
+         */
+        NONE,
+        /**
+         * The gesture has just become a swipe. The caller should stop other
+         * views from handling it and move the view by {@link #getDeltaX()}.
+         */
+        START,
+        /**
+         * The swipe continues. The caller should move the view by {@link #getDeltaX()}.
+         */
+        UPDATE,
+        /**
+         * The view should be dismissed to the left.
+         */
+        DISMISS_LEFT,
+        /**
+         * The view should be dismissed to the right.
+         */
+        DISMISS_RIGHT,
+        /**
+         * The gesture ended without dismissing. The caller should move the
+         * view back to its original position.
+         */
+        CANCEL
+    }
+
+    private final int mSlop;
+    private final int mMinFlingVelocity;
+    private final int mMaxFlingVelocity;
+
+    private int mWidth = 1; // 1 and not 0 to prevent dividing by zero
+    private boolean mAllowLeft = true;
+    private boolean mAllowRight = true;
+
+    private boolean mTracking;
+    private boolean mSwiping;
+    private float mDownX;
+    private float mDeltaX;
+    private float mVelocityX;
+    private float mVelocityY;
+
+    // Ring buffer of the latest samples for the velocity estimation
+    private final float[] mSampleX = new float[MAX_SAMPLES];
+    private final float[] mSampleY = new float[MAX_SAMPLES];
+    private final long[] mSampleTime = new long[MAX_SAMPLES];
+    private int mSampleHead;
+    private int mSampleCount;
+
+    /**
+     * Creates a new gesture detector.
+     *
+     * @param slop             The distance in pixels a touch can wander before
+     *                         it's a swipe.
+     * @param minFlingVelocity The minimum velocity in pixels per second of a fling.
+     * @param maxFlingVelocity The maximum velocity in pixels per second of a fling.
+     */
+    public SwipeGesture(int slop, int minFlingVelocity, int maxFlingVelocity) {
+        mSlop = slop;
+        mMinFlingVelocity = minFlingVelocity;
+        mMaxFlingVelocity = maxFlingVelocity;
+    }
+
+    /**
+     * Sets the width of the swiped views. A view is dismissed when it's been
+     * swiped by half of its width, or flung by a fifth of its width.
+     *
+     * @param width The width in pixels.
+     */
+    public void setWidth(int width) {
+        mWidth = Math.max(1, width);
+    }
+
+    /**
+     * Returns the width of the swiped views.
+     *
+     * @return The width in pixels.
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * Sets the directions the views can be swiped to.
+     *
+     * @param allowLeft  Whether views can be swiped to the left.
+     * @param allowRight Whether views can be swiped to the right.
+     */
+    public void setDirections(boolean allowLeft, boolean allowRight) {
+        mAllowLeft = allowLeft;
+        mAllowRight = allowRight;
+    }
+
+    /**
+     * Returns whether a gesture is currently tracked, meaning it has started
+     * with {@link #down(float, float, long)} and hasn't ended yet.
+     *
+     * @return Whether a gesture is tracked.
+     */
+    public boolean isTracking() {
+        return mTracking;
+    }
+
+    /**
+     * Returns whether the tracked gesture is a swipe.
+     *
+     * @return Whether the gesture is a swipe.
+     */
+    public boolean isSwiping() {
+        return mSwiping;
+    }
+
+    /**
+     * Returns the distance the view should currently be moved by.
+     *
+     * @return The horizontal distance in pixels.
+     */
+    public float getDeltaX() {
+        return mDeltaX;
+    }
+
+    /**
+     * Returns the horizontal velocity estimated when the last gesture ended.
+     *
+     * @return The velocity in pixels per second.
+     */
+    public float getVelocityX() {
+        return mVelocityX;
+    }
+
+    /**
+     * Returns the vertical velocity estimated when the last gesture ended.
+     *
+     * @return The velocity in pixels per second.
+     */
+    public float getVelocityY() {
+        return mVelocityY;
+    }
+
+    /**
+     * Starts tracking a new gesture. A gesture that is still tracked is
+     * cancelled.
+     *
+     * @param x    The x coordinate of the touch.
+     * @param y    The y coordinate of the touch.
+     * @param time The time of the touch in milliseconds.
+     * @return {@link Decision#CANCEL} if a swipe was still tracked,
+     * otherwise {@link Decision#NONE}.
+     */
+    public Decision down(float x, float y, long time) {
+        Decision decision = cancel();
+        mTracking = true;
+        mDownX = x;
+        addSample(x, y, time);
+        return decision;
+    }
+
+    /**
+     * Moves the tracked gesture.
+     *
+     * @param x    The x coordinate of the touch.
+     * @param y    The y coordinate of the touch.
+     * @param time The time of the touch in milliseconds.
+     * @return {@link Decision#START} or {@link Decision#UPDATE} if the view
+     * should be moved, otherwise {@link Decision#NONE}.
+     */
+    public Decision move(float x, float y, long time) {
+        if (!mTracking) {
+            return Decision.NONE;
+        }
+
+        addSample(x, y, time);
+        float deltaX = x - mDownX;
+        boolean started = false;
+        // Only start swipe in correct direction
+        if (isDirectionValid(deltaX)) {
+            if (!mSwiping && Math.abs(deltaX) > mSlop) {
+                mSwiping = true;
+                started = true;
+            }
+        } else {
+            // If we swiped into wrong direction, act like this was the new
+            // touch down point
+            mDownX = x;
+            deltaX = 0;
+        }
+
+        if (!mSwiping) {
+            return Decision.NONE;
+        }
+        mDeltaX = deltaX;
+        return started ? Decision.START : Decision.UPDATE;
+    }
+
+    /**
+     * Ends the tracked gesture and decides whether the view should be dismissed.
+     *
+     * @param x    The x coordinate of the touch.
+     * @param y    The y coordinate of the touch.
+     * @param time The time of the touch in milliseconds.
+     * @return {@link Decision#DISMISS_LEFT} or {@link Decision#DISMISS_RIGHT}
+     * if the view should be dismissed, {@link Decision#CANCEL} if it should be
+     * moved back, or {@link Decision#NONE} if no gesture was tracked.
+     */
+    public Decision up(float x, float y, long time) {
+        if (!mTracking) {
+            return Decision.NONE;
+        }
+
+        addSample(x, y, time);
+        computeVelocity();
+        float deltaX = x - mDownX;
+        float velocityX = Math.abs(mVelocityX);
+        float velocityY = Math.abs(mVelocityY);
+        Decision decision = Decision.CANCEL;
+        if (Math.abs(deltaX) > mWidth / 2 && mSwiping) {
+            decision = deltaX > 0 ? Decision.DISMISS_RIGHT : Decision.DISMISS_LEFT;
+        } else if (mMinFlingVelocity <= velocityX && velocityX <= mMaxFlingVelocity
+                && velocityY < velocityX && mSwiping && isDirectionValid(mVelocityX)
+                && Math.abs(deltaX) >= mWidth * 0.2f) {
+            decision = mVelocityX > 0 ? Decision.DISMISS_RIGHT : Decision.DISMISS_LEFT;
+        }
+        reset();
+        return decision;
+    }
+
+    /**
+     * Cancels the tracked gesture, e.g. because the pointer has been lifted
+     * or the touch event stream has been cancelled.
+     *
+     * @return {@link Decision#CANCEL} if a gesture was tracked, otherwise
+     * {@link Decision#NONE}.
+     */
+    public Decision cancel() {
+        if (!mTracking) {
+            return Decision.NONE;
+        }
+        reset();
+        return Decision.CANCEL;
+    }
+
+    private void reset() {
+        mTracking = false;
+        mSwiping = false;
+        mDownX = 0;
+        mDeltaX = 0;
+        mSampleHead = 0;
+        mSampleCount = 0;
+    }
+
+    private boolean isDirectionValid(float deltaX) {
+        return deltaX > 0 ? mAllowRight : deltaX < 0 ? mAllowLeft : mAllowLeft && mAllowRight;
+    }
+
+    private void addSample(float x, float y, long time) {
+        int index = (mSampleHead + mSampleCount) % MAX_SAMPLES;
+        if (mSampleCount == MAX_SAMPLES) {
+            mSampleHead = (mSampleHead + 1) % MAX_SAMPLES;
+        } else {
+            mSampleCount++;
+        }
+        mSampleX[index] = x;
+        mSampleY[index] = y;
+        mSampleTime[index] = time;
+    }
+
+    /**
+     * Estimates the velocity with a least squares fit of a line through the
+     * samples within the velocity horizon.
+     */
+    private void computeVelocity() {
+        mVelocityX = 0;
+        mVelocityY = 0;
+        if (mSampleCount < 2) {
+            return;
+        }
+
+        int newest = (mSampleHead + mSampleCount - 1) % MAX_SAMPLES;
+        long newestTime = mSampleTime[newest];
+        // Relative to the newest sample, to keep the sums small
+        float newestX = mSampleX[newest];
+        float newestY = mSampleY[newest];
+        int n = 0;
+        float sumT = 0, sumTT = 0, sumX = 0, sumTX = 0, sumY = 0, sumTY = 0;
+        for (int i = mSampleCount - 1; i >= 0; i--) {
+            int index = (mSampleHead + i) % MAX_SAMPLES;
+            long age = newestTime - mSampleTime[index];
+            if (age > VELOCITY_HORIZON) {
+                break;
+            }
+            float t = -age / 1000f;
+            float x = mSampleX[index] - newestX;
+            float y = mSampleY[index] - newestY;
+            sumT += t;
+            sumTT += t * t;
+            sumX += x;
+            sumTX += t * x;
+            sumY += y;
+            sumTY += t * y;
+            n++;
+        }
+
+        float denominator = n * sumTT - sumT * sumT;
+        if (n < 2 || denominator == 0) {
+            return;
+        }
+        mVelocityX = (n * sumTX - sumT * sumX) / denominator;
+        mVelocityY = (n * sumTY - sumT * sumY) / denominator;
+    }
+
+}
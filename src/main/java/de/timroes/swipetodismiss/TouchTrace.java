@@ -0,0 +1,326 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+/**
+ * Records the touch events fed into a {@link SwipeGesture} together with
+ * the decisions it took, to reproduce bad dismiss behavior offline. Pass a
+ * trace to {@link SwipeDismissList#setTouchTrace(TouchTrace)} to record the
+ * gestures on a list, save {@link #toByteArray()} e.g. in a bug report and
+ * replay it later with {@link TouchTraceReplayer}.
+ * <p/>
+ * The events are stored in a ring buffer of fixed size, so only the latest
+ * events are kept and recording never allocates. Every down event stores the
+ * configuration of the gesture it starts, since the width of the list or
+ * the allowed directions might change between gestures. This class doesn't
+ * depend on any Android classes.
+ */
+public class TouchTrace {
+
+    public static final byte ACTION_DOWN = 0;
+    public static final byte ACTION_MOVE = 1;
+    public static final byte ACTION_UP = 2;
+    public static final byte ACTION_CANCEL = 3;
+
+    private static final int MAGIC = 0x53574950;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8 + 4 + 8;
+    // Time relative to the start of the trace, x, y, action and decision,
+    // followed by slop, fling velocities, width and directions for down events
+    private static final int RECORD_SIZE = 4 + 4 + 4 + 1 + 1 + 4 * 4 + 1;
+    private static final int CONFIGURATION_OFFSET = 14;
+    private static final int ALLOW_LEFT = 1;
+    private static final int ALLOW_RIGHT = 2;
+
+    private static final SwipeGesture.Decision[] DECISIONS = SwipeGesture.Decision.values();
+
+    private final byte[] mBuffer;
+    private final int mCapacity;
+    private int mHead;
+    private int mSize;
+    private long mStartTime = -1;
+
+    private int mSlop;
+    private int mMinFlingVelocity;
+    private int mMaxFlingVelocity;
+    private int mWidth = 1;
+    private boolean mAllowLeft = true;
+    private boolean mAllowRight = true;
+
+    /**
+     * Creates a new trace.
+     *
+     * @param capacity The maximum number of events kept.
+     */
+    public TouchTrace(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive.");
+        }
+        mCapacity = capacity;
+        mBuffer = new byte[capacity * RECORD_SIZE];
+    }
+
+    /**
+     * Sets the configuration of the {@link SwipeGesture} the following events
+     * are fed into. It's stored with every recorded down event, so the gesture
+     * can be recreated by {@link #newGesture(int)}.
+     *
+     * @param slop             The touch slop of the gesture.
+     * @param minFlingVelocity The minimum fling velocity of the gesture.
+     * @param maxFlingVelocity The maximum fling velocity of the gesture.
+     * @param width            The width of the swiped views.
+     * @param allowLeft        Whether views can be swiped to the left.
+     * @param allowRight       Whether views can be swiped to the right.
+     */
+    public void setConfiguration(int slop, int minFlingVelocity, int maxFlingVelocity,
+                                 int width, boolean allowLeft, boolean allowRight) {
+        mSlop = slop;
+        mMinFlingVelocity = minFlingVelocity;
+        mMaxFlingVelocity = maxFlingVelocity;
+        mWidth = width;
+        mAllowLeft = allowLeft;
+        mAllowRight = allowRight;
+    }
+
+    /**
+     * Creates a {@link SwipeGesture} with the configuration of the first
+     * recorded down event, or the current configuration if there is none.
+     *
+     * @return A new gesture.
+     */
+    public SwipeGesture newGesture() {
+        for (int i = 0; i < mSize; i++) {
+            if (getAction(i) == ACTION_DOWN) {
+                return newGesture(i);
+            }
+        }
+        SwipeGesture gesture = new SwipeGesture(mSlop, mMinFlingVelocity, mMaxFlingVelocity);
+        gesture.setWidth(mWidth);
+        gesture.setDirections(mAllowLeft, mAllowRight);
+        return gesture;
+    }
+
+    /**
+     * Creates a {@link SwipeGesture} with the configuration recorded for a
+     * down event.
+     *
+     * @param index The index of a {@link #ACTION_DOWN} event.
+     * @return A new gesture.
+     * @throws IllegalArgumentException If the event isn't a down event.
+     */
+    public SwipeGesture newGesture(int index) {
+        int offset = configurationOffsetOf(index);
+        SwipeGesture gesture = new SwipeGesture(getInt(mBuffer, offset),
+                getInt(mBuffer, offset + 4), getInt(mBuffer, offset + 8));
+        configure(gesture, index);
+        return gesture;
+    }
+
+    /**
+     * Applies the width and the allowed directions recorded for a down event
+     * to a gesture, like {@link SwipeDismissList} does before every gesture.
+     * The slop and the fling velocities of a gesture can't be changed.
+     *
+     * @param gesture The gesture to configure.
+     * @param index   The index of a {@link #ACTION_DOWN} event.
+     * @throws IllegalArgumentException If the event isn't a down event.
+     */
+    public void configure(SwipeGesture gesture, int index) {
+        int offset = configurationOffsetOf(index);
+        gesture.setWidth(getInt(mBuffer, offset + 12));
+        byte directions = mBuffer[offset + 16];
+        gesture.setDirections((directions & ALLOW_LEFT) != 0, (directions & ALLOW_RIGHT) != 0);
+    }
+
+    /**
+     * Records an event. If the trace is full, the oldest event is overwritten.
+     *
+     * @param action   One of the {@code ACTION_*} constants.
+     * @param time     The time of the event in milliseconds.
+     * @param x        The x coordinate of the event.
+     * @param y        The y coordinate of the event.
+     * @param decision The decision the gesture took for the event.
+     */
+    public void record(byte action, long time, float x, float y, SwipeGesture.Decision decision) {
+        if (mStartTime < 0) {
+            mStartTime = time;
+        }
+        int index;
+        if (mSize == mCapacity) {
+            index = mHead;
+            mHead = (mHead + 1) % mCapacity;
+        } else {
+            index = (mHead + mSize) % mCapacity;
+            mSize++;
+        }
+        int offset = index * RECORD_SIZE;
+        offset = putInt(mBuffer, offset, (int) (time - mStartTime));
+        offset = putInt(mBuffer, offset, Float.floatToIntBits(x));
+        offset = putInt(mBuffer, offset, Float.floatToIntBits(y));
+        mBuffer[offset++] = action;
+        mBuffer[offset++] = (byte) decision.ordinal();
+        if (action == ACTION_DOWN) {
+            offset = putInt(mBuffer, offset, mSlop);
+            offset = putInt(mBuffer, offset, mMinFlingVelocity);
+            offset = putInt(mBuffer, offset, mMaxFlingVelocity);
+            offset = putInt(mBuffer, offset, mWidth);
+            mBuffer[offset] = (byte) ((mAllowLeft ? ALLOW_LEFT : 0) | (mAllowRight ? ALLOW_RIGHT : 0));
+        }
+    }
+
+    /**
+     * Removes all recorded events.
+     */
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+        mStartTime = -1;
+    }
+
+    /**
+     * Returns the number of recorded events.
+     *
+     * @return The number of events.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the action of an event.
+     *
+     * @param index The index of the event, with {@code 0} being the oldest one.
+     * @return One of the {@code ACTION_*} constants.
+     */
+    public byte getAction(int index) {
+        return mBuffer[offsetOf(index) + 12];
+    }
+
+    /**
+     * Returns the time of an event.
+     *
+     * @param index The index of the event, with {@code 0} being the oldest one.
+     * @return The time in milliseconds.
+     */
+    public long getTime(int index) {
+        return mStartTime + getInt(mBuffer, offsetOf(index));
+    }
+
+    /**
+     * Returns the x coordinate of an event.
+     *
+     * @param index The index of the event, with {@code 0} being the oldest one.
+     * @return The x coordinate.
+     */
+    public float getX(int index) {
+        return Float.intBitsToFloat(getInt(mBuffer, offsetOf(index) + 4));
+    }
+
+    /**
+     * Returns the y coordinate of an event.
+     *
+     * @param index The index of the event, with {@code 0} being the oldest one.
+     * @return The y coordinate.
+     */
+    public float getY(int index) {
+        return Float.intBitsToFloat(getInt(mBuffer, offsetOf(index) + 8));
+    }
+
+    /**
+     * Returns the decision recorded for an event.
+     *
+     * @param index The index of the event, with {@code 0} being the oldest one.
+     * @return The decision of the recorded gesture.
+     */
+    public SwipeGesture.Decision getDecision(int index) {
+        return DECISIONS[mBuffer[offsetOf(index) + 13]];
+    }
+
+    /**
+     * Serializes the recorded events, oldest first.
+     *
+     * @return The serialized trace.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[HEADER_SIZE + mSize * RECORD_SIZE];
+        int offset = putInt(bytes, 0, MAGIC);
+        offset = putInt(bytes, offset, VERSION);
+        offset = putInt(bytes, offset, mSize);
+        offset = putInt(bytes, offset, (int) (mStartTime >>> 32));
+        offset = putInt(bytes, offset, (int) mStartTime);
+        for (int i = 0; i < mSize; i++) {
+            System.arraycopy(mBuffer, offsetOf(i), bytes, offset, RECORD_SIZE);
+            offset += RECORD_SIZE;
+        }
+        return bytes;
+    }
+
+    /**
+     * Restores a trace serialized with {@link #toByteArray()}.
+     *
+     * @param bytes The serialized trace.
+     * @return The restored trace.
+     * @throws IllegalArgumentException If the bytes aren't a serialized trace.
+     */
+    public static TouchTrace fromByteArray(byte[] bytes) {
+        if (bytes.length < HEADER_SIZE || getInt(bytes, 0) != MAGIC) {
+            throw new IllegalArgumentException("Not a touch trace.");
+        }
+        if (getInt(bytes, 4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported touch trace version " + getInt(bytes, 4) + ".");
+        }
+        int size = getInt(bytes, 8);
+        if (size < 0 || bytes.length < HEADER_SIZE + size * RECORD_SIZE) {
+            throw new IllegalArgumentException("Truncated touch trace.");
+        }
+
+        TouchTrace trace = new TouchTrace(Math.max(1, size));
+        trace.mStartTime = ((long) getInt(bytes, 12) << 32) | (getInt(bytes, 16) & 0xffffffffL);
+        System.arraycopy(bytes, HEADER_SIZE, trace.mBuffer, 0, size * RECORD_SIZE);
+        trace.mSize = size;
+        return trace;
+    }
+
+    private int offsetOf(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        return ((mHead + index) % mCapacity) * RECORD_SIZE;
+    }
+
+    private int configurationOffsetOf(int index) {
+        if (getAction(index) != ACTION_DOWN) {
+            throw new IllegalArgumentException("Event " + index + " isn't a down event.");
+        }
+        return offsetOf(index) + CONFIGURATION_OFFSET;
+    }
+
+    private static int putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+        return offset + 4;
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) << 24
+                | (bytes[offset + 1] & 0xff) << 16
+                | (bytes[offset + 2] & 0xff) << 8
+                | (bytes[offset + 3] & 0xff);
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+/**
+ * Feeds the events of a {@link TouchTrace} back into a {@link SwipeGesture}
+ * and compares the decisions with the recorded ones. This runs on a plain
+ * JVM, e.g. in a debugger or a benchmark.
+ */
+public class TouchTraceReplayer {
+
+    /**
+     * Informed about every replayed event.
+     */
+    public interface OnReplayListener {
+
+        /**
+         * Called for every replayed event.
+         *
+         * @param index    The index of the event in the trace.
+         * @param recorded The decision recorded for the event.
+         * @param replayed The decision taken when replaying the event.
+         */
+        void onEvent(int index, SwipeGesture.Decision recorded, SwipeGesture.Decision replayed);
+
+    }
+
+    private final TouchTrace mTrace;
+
+    /**
+     * Creates a new replayer for the given trace.
+     *
+     * @param trace The trace to replay.
+     */
+    public TouchTraceReplayer(TouchTrace trace) {
+        mTrace = trace;
+    }
+
+    /**
+     * Replays the trace through a gesture with the recorded configuration.
+     * Before every {@link TouchTrace#ACTION_DOWN} the gesture is configured
+     * with the width and directions recorded for it.
+     *
+     * @param listener The listener to inform about every event, or {@code null}.
+     * @return The number of events whose replayed decision differs from the
+     * recorded one.
+     */
+    public int replay(OnReplayListener listener) {
+        return replay(mTrace.newGesture(), true, listener);
+    }
+
+    /**
+     * Replays the trace through the given gesture, e.g. to check how another
+     * configuration would have decided. Events before the first
+     * {@link TouchTrace#ACTION_DOWN} are skipped, since the ring buffer of the
+     * trace might have cut off the start of their gesture.
+     *
+     * @param gesture  The gesture to feed the events into.
+     * @param listener The listener to inform about every event, or {@code null}.
+     * @return The number of events whose replayed decision differs from the
+     * recorded one.
+     */
+    public int replay(SwipeGesture gesture, OnReplayListener listener) {
+        return replay(gesture, false, listener);
+    }
+
+    private int replay(SwipeGesture gesture, boolean configure, OnReplayListener listener) {
+        int mismatches = 0;
+        boolean started = false;
+        for (int i = 0; i < mTrace.size(); i++) {
+            byte action = mTrace.getAction(i);
+            if (!started && action != TouchTrace.ACTION_DOWN) {
+                continue;
+            }
+            started = true;
+
+            float x = mTrace.getX(i);
+            float y = mTrace.getY(i);
+            long time = mTrace.getTime(i);
+            SwipeGesture.Decision decision;
+            switch (action) {
+                case TouchTrace.ACTION_DOWN:
+                    if (configure) {
+                        mTrace.configure(gesture, i);
+                    }
+                    decision = gesture.down(x, y, time);
+                    break;
+                case TouchTrace.ACTION_MOVE:
+                    decision = gesture.move(x, y, time);
+                    break;
+                case TouchTrace.ACTION_UP:
+                    decision = gesture.up(x, y, time);
+                    break;
+                default:
+                    decision = gesture.cancel();
+                    break;
+            }
+
+            SwipeGesture.Decision recorded = mTrace.getDecision(i);
+            if (recorded != decision) {
+                mismatches++;
+            }
+            if (listener != null) {
+                listener.onEvent(i, recorded, decision);
+            }
+        }
+        return mismatches;
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.DismissList.UndoMode;
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+/**
+ * Keeps the stored undos of an {@link UndoCoordinator} according to its
+ * {@link UndoMode}: which undos are discarded when a new one is stored,
+ * which are undone by a click on the undo button and in which order. It
+ * records every step into the {@link UndoJournal} and reports it to the
+ * {@link MetricsListener}, if they are set.
+ * <p/>
+ * This class doesn't depend on the Android framework, so it can be tested
+ * and benchmarked on a plain JVM. It must only be used from the main thread.
+ */
+class UndoBookkeeper {
+
+    private final UndoMode mMode;
+    private final UndoHistory mUndoActions;
+    private final DiscardQueue mDiscards;
+    private UndoJournal mJournal;
+    private MetricsListener mMetrics;
+
+    /**
+     * Creates a new bookkeeper.
+     *
+     * @param mode     The mode multiple undos are handled.
+     * @param discards The queue discarding the undos, that can't be undone anymore.
+     */
+    UndoBookkeeper(UndoMode mode, DiscardQueue discards) {
+        mMode = mode;
+        mUndoActions = new UndoHistory(mode == UndoMode.SINGLE_UNDO ? 1 : 0);
+        mDiscards = discards;
+    }
+
+    UndoMode getMode() {
+        return mMode;
+    }
+
+    void setJournal(UndoJournal journal) {
+        mJournal = journal;
+        mDiscards.setJournal(journal);
+    }
+
+    void setMetricsListener(MetricsListener listener) {
+        mMetrics = listener;
+    }
+
+    int size() {
+        return mUndoActions.size();
+    }
+
+    boolean isEmpty() {
+        return mUndoActions.isEmpty();
+    }
+
+    Undoable getLast() {
+        return mUndoActions.getLast();
+    }
+
+    /**
+     * Returns whether a click on the undo button undoes all stored undos at
+     * once, instead of only the latest one.
+     *
+     * @return Whether all stored undos would be undone.
+     */
+    boolean undoesAll() {
+        return mUndoActions.size() > 1 && mMode == UndoMode.COLLAPSED_UNDO;
+    }
+
+    /**
+     * Limits the number of stored undos and discards the oldest ones beyond
+     * the limit. In {@link UndoMode#SINGLE_UNDO} the limit is always one.
+     *
+     * @param capacity The maximum number of stored undos, or {@code 0} for
+     *                 no limit.
+     * @return Whether the limit has been changed.
+     */
+    boolean setCapacity(int capacity) {
+        if (mMode == UndoMode.SINGLE_UNDO) {
+            return false;
+        }
+        mUndoActions.setCapacity(capacity);
+        while (mUndoActions.isOverCapacity()) {
+            discard(mUndoActions.removeFirst());
+        }
+        return true;
+    }
+
+    /**
+     * Called before an item is dismissed. In {@link UndoMode#SINGLE_UNDO} the
+     * stored undo is discarded, before the dismiss of the next item.
+     */
+    void beforeDismiss() {
+        if (mMode == UndoMode.SINGLE_UNDO) {
+            discardAll();
+        }
+    }
+
+    /**
+     * Stores an undo and discards the oldest one, if the history is full.
+     *
+     * @param undoable The undo to store.
+     */
+    void add(Undoable undoable) {
+        if (mJournal != null) {
+            mJournal.dismissed(undoable);
+        }
+        Undoable evicted = mUndoActions.add(undoable);
+        if (mMetrics != null) {
+            mMetrics.onUndoStored(mUndoActions.size());
+        }
+        if (evicted != null) {
+            discard(evicted);
+        }
+    }
+
+    /**
+     * Undoes the stored undos a click on the undo button stands for: the
+     * single undo, all undos from the newest to the oldest one, or the
+     * newest one, depending on the mode.
+     */
+    void undo() {
+        if (mUndoActions.isEmpty()) {
+            return;
+        }
+        switch (mMode) {
+            case SINGLE_UNDO:
+                undo(mUndoActions.get(0));
+                mUndoActions.clear();
+                break;
+            case COLLAPSED_UNDO:
+                for (int i = mUndoActions.size() - 1; i >= 0; i--) {
+                    undo(mUndoActions.get(i));
+                }
+                mUndoActions.clear();
+                break;
+            case MULTI_UNDO:
+                undo(mUndoActions.removeLast());
+                break;
+        }
+    }
+
+    /**
+     * Discards all stored undos.
+     */
+    void discardAll() {
+        if (mMetrics != null && !mUndoActions.isEmpty()) {
+            mMetrics.onDiscarded(mUndoActions.size());
+        }
+        mDiscards.discardAll(mUndoActions);
+    }
+
+    private void discard(Undoable undoable) {
+        if (mMetrics != null) {
+            mMetrics.onDiscarded(1);
+        }
+        mDiscards.discard(undoable);
+    }
+
+    private void undo(Undoable undoable) {
+        undoable.undo();
+        if (mJournal != null) {
+            mJournal.undone(undoable);
+        }
+        if (mMetrics != null) {
+            mMetrics.onUndone(1);
+        }
+    }
+
+}
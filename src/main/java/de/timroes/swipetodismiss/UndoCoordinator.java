@@ -0,0 +1,504 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.content.ComponentCallbacks2;
+import android.os.Handler;
+import android.os.Message;
+import android.os.SystemClock;
+import android.widget.AbsListView;
+
+import de.timroes.swipetodismiss.DismissList.UndoMode;
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import java.text.DecimalFormatSymbols;
+import java.util.concurrent.Executor;
+
+/**
+ * Owns the undo popup, the timer hiding it and the stored undos of one or
+ * more {@link DismissList DismissLists}. By default every list uses its own
+ * coordinator. To show a single undo popup for several lists, e.g. on a
+ * tablet layout with two lists next to each other, pass the same coordinator
+ * to all of them.
+ * <p/>
+ * The undos of all lists are stored together in the order they were
+ * dismissed. Undoing an entry is routed back to the list that dismissed it,
+ * using {@link DismissList#onUndo(Undoable)}. The undo is shown for the list
+ * that dismissed the latest item. The default {@link PopupUndoPresenter} moves
+ * its popup to the bottom of that list, and shows it again on the window of
+ * the list if it's in another window.
+ */
+public class UndoCoordinator {
+
+    private static final int MSG_HIDE_POPUP = 0;
+
+    private final DiscardQueue mDiscards = new DiscardQueue();
+    private final UndoBookkeeper mUndoActions;
+    private final Handler mHandler = new HideUndoPopupHandler();
+
+    private UndoPresenter mPresenter;
+    // The list and position the undo has been shown for the last time
+    private AbsListView mShownList;
+    private int mShownPosition;
+    private final UndoPresenter.Host mHost = new UndoHandler();
+
+    // Labels of the undo button, loaded when the undo is shown for the first time
+    private String mUndoLabel;
+    private String mUndoAllLabel;
+    private final StringBuilder mTextBuilder = new StringBuilder();
+
+    private int mAutoHideDelay = 5000;
+    private String mDeleteMultipleString;
+    // The parts of mDeleteMultipleString around its %d, or null if it must be
+    // formatted. Split when the undo is shown for the first time after a change.
+    private boolean mMultipleSplit;
+    private String mMultiplePrefix;
+    private String mMultipleSuffix;
+
+    // Uptime at which the undo popup will be hidden, or -1 if not scheduled
+    private long mHideTime = -1;
+    // Whether the countdown is paused and the time it had left, or -1 if none
+    private boolean mHidePaused;
+    private long mPausedHideDelay = -1;
+
+    /**
+     * Creates a new coordinator. This must be called on the main thread.
+     *
+     * @param mode The mode multiple undos are handled for all lists using
+     *             this coordinator.
+     */
+    public UndoCoordinator(UndoMode mode) {
+        mUndoActions = new UndoBookkeeper(mode, mDiscards);
+        setUndoMultipleString("%d items deleted");
+        setUndoPresenter(new PopupUndoPresenter());
+    }
+
+    /**
+     * Returns the mode multiple undos are handled.
+     *
+     * @return The undo mode.
+     */
+    public UndoMode getMode() {
+        return mUndoActions.getMode();
+    }
+
+    /**
+     * Sets the {@link UndoPresenter} showing the undo to the user. By default
+     * a {@link PopupUndoPresenter} is used. A currently shown undo is moved
+     * over to the new presenter.
+     *
+     * @param presenter The presenter to use.
+     */
+    public void setUndoPresenter(UndoPresenter presenter) {
+        if (presenter == null) {
+            throw new IllegalArgumentException("presenter must not be null.");
+        }
+        boolean showing = mPresenter != null && mPresenter.isShowing();
+        if (showing) {
+            mPresenter.hide();
+        }
+        mPresenter = presenter;
+        mPresenter.setHost(mHost);
+        if (showing && mShownList != null) {
+            mPresenter.show(mShownList, mShownPosition, getUndoText(), getButtonLabel());
+        }
+    }
+
+    /**
+     * Sets the time in milliseconds after which the undo popup automatically
+     * disappears.
+     *
+     * @param delay Delay in milliseconds.
+     */
+    public void setAutoHideDelay(int delay) {
+        mAutoHideDelay = delay;
+    }
+
+    /**
+     * Sets the string shown in the undo popup, when multiple deletions has been
+     * stored for undo. See {@link DismissList#setUndoMultipleString(String)}.
+     *
+     * @param msg The string shown in the undo popup for multiple undos.
+     */
+    public void setUndoMultipleString(String msg) {
+        mDeleteMultipleString = msg;
+        mMultipleSplit = false;
+        mMultiplePrefix = null;
+        mMultipleSuffix = null;
+    }
+
+    /**
+     * Splits the multiple undo string around its count, so the count can be
+     * appended instead of formatting the string for every update.
+     */
+    private void splitUndoMultipleString() {
+        mMultipleSplit = true;
+        String msg = mDeleteMultipleString;
+        if (msg == null || DecimalFormatSymbols.getInstance().getZeroDigit() != '0') {
+            return;
+        }
+
+        // Split the string around its only %d, so the count can just be appended
+        int index = msg.indexOf("%d");
+        if (index < 0) {
+            if (msg.indexOf('%') < 0) {
+                mMultiplePrefix = msg;
+                mMultipleSuffix = "";
+            }
+        } else if (msg.lastIndexOf('%', index - 1) < 0 && msg.indexOf('%', index + 2) < 0) {
+            mMultiplePrefix = msg.substring(0, index);
+            mMultipleSuffix = msg.substring(index + 2);
+        }
+    }
+
+    /**
+     * Limits the number of stored undos. See {@link DismissList#setUndoCapacity(int)}.
+     *
+     * @param capacity The maximum number of stored undos, or {@code 0} for
+     *                 no limit.
+     */
+    public void setUndoCapacity(int capacity) {
+        if (!mUndoActions.setCapacity(capacity)) {
+            return;
+        }
+        if (!mUndoActions.isEmpty() && isPopupShowing()) {
+            mPresenter.update(getUndoText(), getButtonLabel());
+        }
+    }
+
+    /**
+     * Sets the {@link Executor} used to call {@link Undoable#discard()}.
+     * See {@link DismissList#setDiscardExecutor(Executor)}.
+     *
+     * @param executor The executor to use, or {@code null} to discard on the
+     *                 calling thread.
+     */
+    public void setDiscardExecutor(Executor executor) {
+        mDiscards.setExecutor(executor);
+    }
+
+    /**
+     * Immediately discards all undos still waiting for the discard executor
+     * on the calling thread.
+     */
+    public void flushDiscards() {
+        mDiscards.flush();
+    }
+
+    /**
+     * Waits until the discard executor has discarded all undos handed to it.
+     *
+     * @param timeout The maximum time to wait in milliseconds.
+     * @return Whether all undos were discarded within the timeout.
+     */
+    public boolean awaitDiscards(long timeout) {
+        return mDiscards.await(timeout);
+    }
+
+    /**
+     * Sets the {@link UndoJournal} recording all dismissed, undone and
+     * discarded items of all lists using this coordinator.
+     *
+     * @param journal The journal to use, or {@code null} to use none.
+     */
+    public void setUndoJournal(UndoJournal journal) {
+        mUndoActions.setJournal(journal);
+    }
+
+    /**
+     * Sets the {@link MetricsListener} informed about the undos of all lists
+     * using this coordinator. See {@link DismissList#setMetricsListener(MetricsListener)}.
+     *
+     * @param listener The listener to inform, or {@code null} to inform none.
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        mUndoActions.setMetricsListener(listener);
+    }
+
+    /**
+     * Discard all stored undos of all lists and hide the undo popup dialog.
+     */
+    public void discardUndo() {
+        discardAll();
+        dismissPopup();
+        interruptHidePopup();
+    }
+
+    /**
+     * Hide the popup after the configured delay, unless interrupted
+     * by another event using {@link #interruptHidePopup()}. If the popup is
+     * already scheduled to hide, this won't reschedule it.
+     */
+    public void hidePopup() {
+        if (mHidePaused) {
+            // Start the countdown as soon as it's resumed
+            if (isPopupShowing() && mPausedHideDelay < 0) {
+                mPausedHideDelay = mAutoHideDelay;
+            }
+            return;
+        }
+        if (isPopupShowing() && mHideTime < 0) {
+            mHideTime = SystemClock.uptimeMillis() + mAutoHideDelay;
+            mHandler.sendEmptyMessageAtTime(MSG_HIDE_POPUP, mHideTime);
+        }
+    }
+
+    /**
+     * Interrupt the popup hiding, causing the popup to stay opened
+     * until {@link #hidePopup()} is called again.
+     */
+    public void interruptHidePopup() {
+        mHandler.removeMessages(MSG_HIDE_POPUP);
+        mHideTime = -1;
+        mPausedHideDelay = -1;
+    }
+
+    /**
+     * Pauses the countdown hiding the undo popup, e.g. in {@code onStop} of
+     * your activity, so the undos don't expire while the user can't see them.
+     * The countdown continues with the remaining time on {@link #resumeHidePopup()}.
+     */
+    public void pauseHidePopup() {
+        if (mHidePaused) {
+            return;
+        }
+        mHidePaused = true;
+        if (mHideTime >= 0) {
+            mPausedHideDelay = Math.max(0, mHideTime - SystemClock.uptimeMillis());
+            mHandler.removeMessages(MSG_HIDE_POPUP);
+            mHideTime = -1;
+        }
+    }
+
+    /**
+     * Resumes the countdown paused by {@link #pauseHidePopup()}, e.g. in
+     * {@code onStart} of your activity.
+     */
+    public void resumeHidePopup() {
+        if (!mHidePaused) {
+            return;
+        }
+        mHidePaused = false;
+        if (mPausedHideDelay >= 0 && isPopupShowing()) {
+            mHideTime = SystemClock.uptimeMillis() + mPausedHideDelay;
+            mHandler.sendEmptyMessageAtTime(MSG_HIDE_POPUP, mHideTime);
+        }
+        mPausedHideDelay = -1;
+    }
+
+    /**
+     * Discards all stored undos early when the system runs low on memory, so
+     * the resources held by them can be released. Call this from
+     * {@link ComponentCallbacks2#onTrimMemory(int)} of your activity. Hiding
+     * the UI alone doesn't discard anything, use {@link #pauseHidePopup()} for that.
+     *
+     * @param level The memory trim level passed to {@code onTrimMemory}.
+     */
+    public void onTrimMemory(int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            discardUndo();
+            flushDiscards();
+        }
+    }
+
+    /**
+     * Returns the time left until the undo popup will be hidden.
+     *
+     * @return The remaining time in milliseconds or {@code -1} if the popup
+     * is currently not scheduled to hide.
+     */
+    public long getRemainingHideDelay() {
+        if (mHidePaused) {
+            return mPausedHideDelay;
+        }
+        if (mHideTime < 0) {
+            return -1;
+        }
+        return Math.max(0, mHideTime - SystemClock.uptimeMillis());
+    }
+
+    /**
+     * Called before an item of a list is dismissed, discards the stored undo
+     * in {@link UndoMode#SINGLE_UNDO}.
+     */
+    void beforeDismiss() {
+        mUndoActions.beforeDismiss();
+    }
+
+    /**
+     * Stores an undo of the given list and discards the oldest one, if the
+     * undo history is full.
+     */
+    void addUndo(DismissList origin, Undoable undoable) {
+        mUndoActions.add(new Entry(origin, undoable));
+    }
+
+    /**
+     * Discards all stored undos.
+     */
+    void discardAll() {
+        mUndoActions.discardAll();
+    }
+
+    /**
+     * Shows the undo for the given list, if there are stored undos.
+     *
+     * @param anchor   The list that dismissed the latest item.
+     * @param position The position of the latest dismissed item.
+     */
+    void showUndoPopup(DismissList anchor, int position) {
+        if (!mUndoActions.isEmpty()) {
+            AbsListView listView = anchor.mListView;
+            if (mUndoLabel == null) {
+                mUndoLabel = listView.getResources().getString(R.string.undo);
+                mUndoAllLabel = listView.getResources().getString(R.string.undoall);
+            }
+            if (!mMultipleSplit) {
+                splitUndoMultipleString();
+            }
+            mShownList = listView;
+            mShownPosition = position;
+            mPresenter.show(listView, position, getUndoText(), getButtonLabel());
+        }
+    }
+
+    private boolean isPopupShowing() {
+        return mPresenter.isShowing();
+    }
+
+    private void dismissPopup() {
+        mPresenter.hide();
+    }
+
+    /**
+     * Returns the undo message depending on stored undos.
+     */
+    private CharSequence getUndoText() {
+        CharSequence msg = "";
+        int size = mUndoActions.size();
+        if (size > 1 && mDeleteMultipleString != null) {
+            if (mMultiplePrefix != null) {
+                mTextBuilder.setLength(0);
+                mTextBuilder.append(mMultiplePrefix);
+                if (mMultiplePrefix.length() < mDeleteMultipleString.length()) {
+                    mTextBuilder.append(size).append(mMultipleSuffix);
+                }
+                msg = mTextBuilder;
+            } else {
+                msg = String.format(mDeleteMultipleString, size);
+            }
+        } else if (size >= 1) {
+            // Set title from single undoable or when no multiple deletion string
+            // is given
+            Entry last = (Entry) mUndoActions.getLast();
+            if (last.getTitle() != null) {
+                msg = last.getTitle();
+            } else {
+                msg = last.mOrigin.mDeleteString;
+            }
+        }
+        return msg != null ? msg : "";
+    }
+
+    private String getButtonLabel() {
+        if (mUndoActions.undoesAll()) {
+            return mUndoAllLabel;
+        } else {
+            return mUndoLabel;
+        }
+    }
+
+    /**
+     * A stored undo together with the list that dismissed it.
+     */
+    private static class Entry extends Undoable {
+
+        final DismissList mOrigin;
+        final Undoable mUndoable;
+
+        Entry(DismissList origin, Undoable undoable) {
+            mOrigin = origin;
+            mUndoable = undoable;
+        }
+
+        @Override
+        public String getTitle() {
+            return mUndoable.getTitle();
+        }
+
+        @Override
+        public void undo() {
+            mOrigin.onUndo(mUndoable);
+        }
+
+        @Override
+        public void discard() {
+            mUndoable.discard();
+        }
+
+        @Override
+        public String getJournalKey() {
+            return mUndoable.getJournalKey();
+        }
+
+    }
+
+    /**
+     * Takes care of undoing a dismiss. This will be set as the
+     * {@link UndoPresenter.Host} of the presenter.
+     */
+    private class UndoHandler implements UndoPresenter.Host {
+
+        public void onUndoClick() {
+            mUndoActions.undo();
+
+            // Dismiss dialog or change text
+            if (mUndoActions.isEmpty()) {
+                mPresenter.hide();
+            } else {
+                mPresenter.update(getUndoText(), getButtonLabel());
+            }
+
+            interruptHidePopup();
+        }
+
+        public void onUndoTouch() {
+            // If user tabs "undo" button, reset delay time to remove popup
+            interruptHidePopup();
+        }
+
+    }
+
+    /**
+     * Handler used to hide the undo popup after a special delay.
+     */
+    private class HideUndoPopupHandler extends Handler {
+
+        @Override
+        public void handleMessage(Message msg) {
+            if (msg.what == MSG_HIDE_POPUP) {
+                mHideTime = -1;
+                // Call discard on any element
+                discardAll();
+                dismissPopup();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+/**
+ * The stored {@link Undoable Undoables} of a {@link DismissList}, kept in a
+ * ring buffer. If a capacity is set, adding to a full history evicts the
+ * oldest entry. Without a capacity the buffer grows as needed.
+ */
+class UndoHistory {
+
+    private static final int INITIAL_CAPACITY = 10;
+
+    private Undoable[] mItems;
+    private int mHead;
+    private int mSize;
+    private int mCapacity;
+
+    /**
+     * Creates a new history.
+     *
+     * @param capacity The maximum number of entries, or {@code 0} for no limit.
+     */
+    UndoHistory(int capacity) {
+        mCapacity = capacity;
+        mItems = new Undoable[capacity > 0 ? capacity : INITIAL_CAPACITY];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns the entry at the given index, with {@code 0} being the oldest one.
+     *
+     * @param index The index of the entry.
+     * @return The entry at that index.
+     */
+    Undoable get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        return mItems[(mHead + index) % mItems.length];
+    }
+
+    Undoable getLast() {
+        return get(mSize - 1);
+    }
+
+    /**
+     * Adds a new entry as the newest one.
+     *
+     * @param undoable The entry to add.
+     * @return The oldest entry, if it had to be evicted to make room for the
+     * new one, otherwise {@code null}.
+     */
+    Undoable add(Undoable undoable) {
+        Undoable evicted = null;
+        if (mCapacity > 0 && mSize == mCapacity) {
+            evicted = removeFirst();
+        } else if (mSize == mItems.length) {
+            grow();
+        }
+        mItems[(mHead + mSize) % mItems.length] = undoable;
+        mSize++;
+        return evicted;
+    }
+
+    Undoable removeFirst() {
+        Undoable first = get(0);
+        mItems[mHead] = null;
+        mHead = (mHead + 1) % mItems.length;
+        mSize--;
+        return first;
+    }
+
+    Undoable removeLast() {
+        Undoable last = getLast();
+        mItems[(mHead + mSize - 1) % mItems.length] = null;
+        mSize--;
+        return last;
+    }
+
+    void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mItems[(mHead + i) % mItems.length] = null;
+        }
+        mHead = 0;
+        mSize = 0;
+    }
+
+    /**
+     * Changes the capacity of this history. If there are more entries than the
+     * new capacity allows, the oldest ones must be removed by the caller using
+     * {@link #removeFirst()} while {@link #isOverCapacity()} returns {@code true}.
+     *
+     * @param capacity The maximum number of entries, or {@code 0} for no limit.
+     */
+    void setCapacity(int capacity) {
+        mCapacity = capacity;
+        if (capacity > mItems.length) {
+            resize(capacity);
+        }
+    }
+
+    boolean isOverCapacity() {
+        return mCapacity > 0 && mSize > mCapacity;
+    }
+
+    private void grow() {
+        resize(mItems.length * 2);
+    }
+
+    private void resize(int length) {
+        Undoable[] items = new Undoable[length];
+        for (int i = 0; i < mSize; i++) {
+            items[i] = mItems[(mHead + i) % mItems.length];
+        }
+        mItems = items;
+        mHead = 0;
+    }
+
+}
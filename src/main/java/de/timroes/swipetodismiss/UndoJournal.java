@@ -0,0 +1,350 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.util.Log;
+
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An append-only journal of all dismissed, undone and discarded items of a
+ * {@link DismissList}. If the process is killed while undos are still
+ * pending, their discard would never happen. With a journal these pending
+ * discards can be replayed on the next start using {@link #replay(OnReplayListener)}.
+ * <p/>
+ * Only {@link Undoable Undoables} returning a key from
+ * {@link Undoable#getJournalKey()} are recorded. The key must be enough to
+ * perform the discard without the {@link Undoable} itself, e.g. the database
+ * id of the deleted item.
+ * <p/>
+ * Records are collected in memory and written to the file in batches on a
+ * background thread, without syncing it to the disk. So they survive the
+ * death of the process once written, but not necessarily a power loss. Call
+ * {@link #flush()} to write all records immediately.
+ */
+public class UndoJournal {
+
+    private static final String TAG = "UndoJournal";
+
+    private static final byte RECORD_DISMISS = 1;
+    private static final byte RECORD_UNDO = 2;
+    private static final byte RECORD_DISCARD = 3;
+
+    private static Executor sDefaultWriter;
+
+    private final File mFile;
+    private final Executor mWriter;
+    private final Runnable mFlushTask = new Runnable() {
+        public void run() {
+            flush();
+        }
+    };
+
+    // Guarded by this, so recording never waits for the file
+    private final Set<String> mOpenKeys = new LinkedHashSet<String>();
+    private ByteBuffer mPending = ByteBuffer.allocateDirect(256);
+    private boolean mFlushScheduled;
+
+    // Guarded by mWriteLock
+    private final Object mWriteLock = new Object();
+    private ByteBuffer mWriting = ByteBuffer.allocateDirect(256);
+    private RandomAccessFile mRandomAccessFile;
+    private FileChannel mChannel;
+    private boolean mFileChecked;
+    // Whether the file contains records of an earlier process, that haven't been replayed
+    private boolean mHasUnreplayedRecords;
+
+    /**
+     * Called for every dismiss, that has neither been undone nor discarded
+     * before the process was killed.
+     */
+    public interface OnReplayListener {
+
+        /**
+         * Performs the discard of the dismissed item with the given key.
+         *
+         * @param key The key returned by {@link Undoable#getJournalKey()}.
+         */
+        void onReplayDiscard(String key);
+
+    }
+
+    /**
+     * Creates a journal writing to the given file on a background thread
+     * shared by all journals.
+     *
+     * @param file The file to store the journal in, e.g. a file in
+     *             {@link android.content.Context#getFilesDir()}.
+     */
+    public UndoJournal(File file) {
+        this(file, null);
+    }
+
+    /**
+     * Creates a journal writing to the given file on the given executor.
+     *
+     * @param file The file to store the journal in, e.g. a file in
+     *             {@link android.content.Context#getFilesDir()}.
+     * @param writer The executor writing the records, e.g. the one passed to
+     *               {@link DismissList#setDiscardExecutor(Executor)}, or
+     *               {@code null} to use a background thread shared by all
+     *               journals.
+     */
+    public UndoJournal(File file, Executor writer) {
+        mFile = file;
+        mWriter = writer != null ? writer : getDefaultWriter();
+    }
+
+    /**
+     * Discards all items that have been dismissed but neither undone nor
+     * discarded by an earlier process. This should be called once on start,
+     * before the journal is passed to {@link DismissList#setUndoJournal(UndoJournal)}.
+     * Afterwards the journal file will only contain the dismisses of this
+     * process, that are still pending.
+     *
+     * @param listener The listener performing the discards.
+     * @throws IOException If the journal can't be read or truncated.
+     */
+    public void replay(OnReplayListener listener) throws IOException {
+        synchronized (mWriteLock) {
+            flush();
+
+            Set<String> pending = new LinkedHashSet<String>();
+            if (mFile.exists()) {
+                RandomAccessFile file = new RandomAccessFile(mFile, "r");
+                try {
+                    FileChannel channel = file.getChannel();
+                    ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        // Read until the buffer is full
+                    }
+                    buffer.flip();
+                    readRecords(buffer, pending);
+                } finally {
+                    file.close();
+                }
+            }
+
+            // Dismisses of this process are still in the undo popup
+            Set<String> openKeys;
+            synchronized (this) {
+                openKeys = new LinkedHashSet<String>(mOpenKeys);
+            }
+            pending.removeAll(openKeys);
+            for (String key : pending) {
+                listener.onReplayDiscard(key);
+            }
+
+            // All pending discards of the earlier process are done now
+            if (mChannel != null) {
+                mChannel.truncate(0);
+                for (String key : openKeys) {
+                    mWriting = put(mWriting, RECORD_DISMISS, key);
+                }
+                mWriting.flip();
+                try {
+                    write(mWriting);
+                } finally {
+                    mWriting.clear();
+                }
+            } else if (mFile.exists()) {
+                RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+                try {
+                    file.setLength(0);
+                } finally {
+                    file.close();
+                }
+            }
+            mFileChecked = true;
+            mHasUnreplayedRecords = false;
+        }
+    }
+
+    /**
+     * Writes all records to the journal file on the calling thread. Records
+     * are written in the background anyway, this waits for them, e.g. before
+     * the process might be killed.
+     */
+    public void flush() {
+        synchronized (mWriteLock) {
+            boolean idle;
+            synchronized (this) {
+                mFlushScheduled = false;
+                ByteBuffer records = mPending;
+                mPending = mWriting;
+                mWriting = records;
+                idle = mOpenKeys.isEmpty();
+            }
+            mWriting.flip();
+            try {
+                if (mWriting.hasRemaining()) {
+                    open();
+                    if (idle && !mHasUnreplayedRecords) {
+                        // Nothing left to replay, so the journal can start over
+                        mChannel.truncate(0);
+                    } else {
+                        write(mWriting);
+                    }
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write undo journal.", e);
+            } finally {
+                mWriting.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes all records and closes the journal file. It will be reopened on
+     * the next record.
+     */
+    public void close() {
+        synchronized (mWriteLock) {
+            flush();
+            if (mRandomAccessFile != null) {
+                try {
+                    mRandomAccessFile.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to close undo journal.", e);
+                }
+                mRandomAccessFile = null;
+                mChannel = null;
+            }
+        }
+    }
+
+    void dismissed(Undoable undoable) {
+        record(RECORD_DISMISS, undoable);
+    }
+
+    void undone(Undoable undoable) {
+        record(RECORD_UNDO, undoable);
+    }
+
+    void discarded(Undoable undoable) {
+        record(RECORD_DISCARD, undoable);
+    }
+
+    private synchronized void record(byte type, Undoable undoable) {
+        String key = undoable.getJournalKey();
+        if (key == null) {
+            return;
+        }
+
+        try {
+            mPending = put(mPending, type, key);
+        } catch (UnsupportedEncodingException e) {
+            Log.w(TAG, "Failed to write undo journal.", e);
+            return;
+        }
+        if (type == RECORD_DISMISS) {
+            mOpenKeys.add(key);
+        } else {
+            mOpenKeys.remove(key);
+        }
+
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mWriter.execute(mFlushTask);
+        }
+    }
+
+    /**
+     * Appends a record to the given buffer, growing it if needed.
+     *
+     * @return The buffer containing the record.
+     */
+    private static ByteBuffer put(ByteBuffer buffer, byte type, String key)
+            throws UnsupportedEncodingException {
+        byte[] keyBytes = key.getBytes("UTF-8");
+        int length = 1 + 4 + keyBytes.length;
+        if (buffer.remaining() < length) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(
+                    Math.max(buffer.position() + length, buffer.capacity() * 2));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        buffer.put(type).putInt(keyBytes.length).put(keyBytes);
+        return buffer;
+    }
+
+    private void write(ByteBuffer records) throws IOException {
+        open();
+        mChannel.position(mChannel.size());
+        while (records.hasRemaining()) {
+            mChannel.write(records);
+        }
+    }
+
+    private void open() throws IOException {
+        if (mChannel == null) {
+            mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+            mChannel = mRandomAccessFile.getChannel();
+            if (!mFileChecked) {
+                // Nothing has been written by this journal yet
+                mHasUnreplayedRecords = mChannel.size() > 0;
+                mFileChecked = true;
+            }
+        }
+    }
+
+    private static synchronized Executor getDefaultWriter() {
+        if (sDefaultWriter == null) {
+            sDefaultWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sDefaultWriter;
+    }
+
+    private static void readRecords(ByteBuffer buffer, Set<String> pending)
+            throws UnsupportedEncodingException {
+        while (buffer.remaining() >= 5) {
+            byte type = buffer.get();
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                // Incomplete record, the process died while writing it
+                break;
+            }
+            byte[] keyBytes = new byte[length];
+            buffer.get(keyBytes);
+            String key = new String(keyBytes, "UTF-8");
+            if (type == RECORD_DISMISS) {
+                pending.add(key);
+            } else {
+                pending.remove(key);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.widget.AbsListView;
+
+/**
+ * Shows the undo message and button to the user. By default the undo is
+ * shown in a popup window at the bottom of the list ({@link PopupUndoPresenter}).
+ * Use {@link UndoCoordinator#setUndoPresenter(UndoPresenter)} to show it
+ * another way, e.g. with an {@link InlineUndoPresenter} inside of the list.
+ * <p/>
+ * All methods are called on the main thread. The texts passed in might be
+ * reused buffers, so they must be copied if they are kept.
+ */
+public interface UndoPresenter {
+
+    /**
+     * Informed by the presenter about the user interacting with the undo.
+     */
+    interface Host {
+
+        /**
+         * Called when the user clicked the undo button.
+         */
+        void onUndoClick();
+
+        /**
+         * Called when the user touched the undo, which stops the undo from
+         * being hidden automatically.
+         */
+        void onUndoTouch();
+
+    }
+
+    /**
+     * Sets the host to inform about clicks on the undo button. This is called
+     * once, before the presenter is shown for the first time.
+     *
+     * @param host The host to inform.
+     */
+    void setHost(Host host);
+
+    /**
+     * Shows the undo for the given list or updates it, if it's already shown.
+     *
+     * @param listView    The list that dismissed the latest item.
+     * @param position    The position of the latest dismissed item.
+     * @param text        The undo message.
+     * @param buttonLabel The label of the undo button.
+     */
+    void show(AbsListView listView, int position, CharSequence text, CharSequence buttonLabel);
+
+    /**
+     * Updates the shown undo, e.g. after an undo has been performed.
+     *
+     * @param text        The undo message.
+     * @param buttonLabel The label of the undo button.
+     */
+    void update(CharSequence text, CharSequence buttonLabel);
+
+    /**
+     * Hides the undo.
+     */
+    void hide();
+
+    /**
+     * Returns whether the undo is currently shown.
+     *
+     * @return Whether the undo is shown.
+     */
+    boolean isShowing();
+
+}
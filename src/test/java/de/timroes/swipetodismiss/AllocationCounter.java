@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes allocated by the calling thread, using the allocation
+ * counters of the HotSpot JVM.
+ */
+class AllocationCounter {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final long mOverhead;
+    private long mStart = -1;
+
+    AllocationCounter() {
+        // Reading the counter allocates itself on some JVMs
+        start();
+        mOverhead = stop();
+    }
+
+    /**
+     * Returns whether the JVM supports counting allocations per thread.
+     *
+     * @return Whether the counter can be used.
+     */
+    static boolean isSupported() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return false;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads.isThreadAllocatedMemoryEnabled();
+    }
+
+    void start() {
+        mStart = read();
+    }
+
+    /**
+     * Returns the bytes allocated since {@link #start()}, without the
+     * allocations of the counter itself.
+     *
+     * @return The allocated bytes.
+     */
+    long stop() {
+        long allocated = read() - mStart;
+        return Math.max(0, allocated - mOverhead);
+    }
+
+    private static long read() {
+        return ((com.sun.management.ThreadMXBean) THREADS)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DiscardQueueTest {
+
+    private final List<String> mLog = new ArrayList<String>();
+    private final DiscardQueue mQueue = new DiscardQueue();
+
+    /**
+     * Runs the submitted tasks only when told to.
+     */
+    private static class ManualExecutor implements Executor {
+
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+
+    }
+
+    @Test
+    public void discardsImmediatelyWithoutExecutor() {
+        mQueue.discard(new RecordingUndoable(mLog, "a"));
+        assertEquals(Arrays.asList("discard a"), mLog);
+    }
+
+    @Test
+    public void batchesQueuedDiscardsInOrder() {
+        ManualExecutor executor = new ManualExecutor();
+        mQueue.setExecutor(executor);
+        UndoHistory history = new UndoHistory(0);
+        history.add(new RecordingUndoable(mLog, "c"));
+        history.add(new RecordingUndoable(mLog, "d"));
+
+        mQueue.discard(new RecordingUndoable(mLog, "a"));
+        mQueue.discard(new RecordingUndoable(mLog, "b"));
+        mQueue.discardAll(history);
+        assertTrue(history.isEmpty());
+        assertTrue(mLog.isEmpty());
+        assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        assertEquals(Arrays.asList("discard a", "discard b", "discard c", "discard d"), mLog);
+        assertTrue(mQueue.await(0));
+    }
+
+    @Test
+    public void flushesOnCallingThread() {
+        ManualExecutor executor = new ManualExecutor();
+        mQueue.setExecutor(executor);
+        mQueue.discard(new RecordingUndoable(mLog, "a"));
+        mQueue.flush();
+        assertEquals(Arrays.asList("discard a"), mLog);
+
+        // The scheduled task has nothing left to do
+        executor.runAll();
+        assertEquals(1, mLog.size());
+
+        mQueue.discard(new RecordingUndoable(mLog, "b"));
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(Arrays.asList("discard a", "discard b"), mLog);
+    }
+
+    @Test
+    public void keepsDiscardingAfterFailure() {
+        ManualExecutor executor = new ManualExecutor();
+        mQueue.setExecutor(executor);
+        mQueue.discard(new RecordingUndoable(mLog, "a"));
+        mQueue.discard(new RecordingUndoable(mLog, "b") {
+            @Override
+            public void discard() {
+                super.discard();
+                // Queued while the batch is running
+                mQueue.discard(new RecordingUndoable(mLog, "d"));
+                throw new IllegalStateException("b");
+            }
+        });
+        mQueue.discard(new RecordingUndoable(mLog, "c"));
+
+        try {
+            executor.runAll();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("b", e.getMessage());
+        }
+        assertEquals(Arrays.asList("discard a", "discard b", "discard c"), mLog);
+
+        // The undo queued during the failed batch has been scheduled again
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        mQueue.discard(new RecordingUndoable(mLog, "e"));
+        executor.runAll();
+        assertEquals(Arrays.asList("discard a", "discard b", "discard c", "discard d",
+                "discard e"), mLog);
+        assertTrue(mQueue.await(0));
+    }
+
+    @Test
+    public void keepsOrderOnThreadPool() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            mQueue.setExecutor(executor);
+            List<String> expected = new ArrayList<String>();
+            for (int i = 0; i < 500; i++) {
+                mQueue.discard(new RecordingUndoable(mLog, String.valueOf(i)));
+                expected.add("discard " + i);
+            }
+            assertTrue(mQueue.await(5000));
+            synchronized (mLog) {
+                assertEquals(expected, mLog);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 18)
+public class DismissableAdapterTest {
+
+    private final List<String> mCommits = new ArrayList<String>();
+    private final DismissableAdapter.OnCommitListener mCommitListener =
+            new DismissableAdapter.OnCommitListener() {
+                public void onCommit(int position, long id) {
+                    mCommits.add(position + ":" + id);
+                }
+            };
+
+    @Test
+    public void hidesAndShowsItems() {
+        ItemAdapter items = new ItemAdapter(10, true);
+        DismissableAdapter adapter = new DismissableAdapter(items, mCommitListener);
+
+        Undoable undoable = adapter.hide(2);
+        assertEquals(9, adapter.getCount());
+        assertEquals(3, adapter.getItemId(2));
+        assertEquals(3, adapter.toWrappedPosition(2));
+
+        undoable.undo();
+        assertEquals(10, adapter.getCount());
+        assertEquals(2, adapter.getItemId(2));
+    }
+
+    @Test
+    public void commitsOnDiscard() {
+        ItemAdapter items = new ItemAdapter(10, true);
+        DismissableAdapter adapter = new DismissableAdapter(items, mCommitListener);
+
+        adapter.hide(5).discard();
+        assertEquals(Arrays.asList("5:5"), mCommits);
+    }
+
+    @Test
+    public void keepsCommittedItemHiddenUntilRemoved() {
+        ItemAdapter items = new ItemAdapter(10, true);
+        DismissableAdapter adapter = new DismissableAdapter(items, mCommitListener);
+        adapter.hide(5).discard();
+
+        // An unrelated change before the item has been deleted
+        items.notifyDataSetChanged();
+        assertEquals(9, adapter.getCount());
+        assertEquals(6, adapter.getItemId(5));
+
+        items.ids.remove(5);
+        items.notifyDataSetChanged();
+        assertEquals(9, adapter.getCount());
+        assertEquals(6, adapter.getItemId(5));
+        assertEquals(5, adapter.toWrappedPosition(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresStableIds() {
+        new DismissableAdapter(new ItemAdapter(10, false), mCommitListener);
+    }
+
+    @Test
+    public void mapsPositionsLikeAList() {
+        ItemAdapter items = new ItemAdapter(1000, true);
+        DismissableAdapter adapter = new DismissableAdapter(items, mCommitListener);
+        List<Long> visible = new ArrayList<Long>(items.ids);
+        List<Undoable> undoables = new ArrayList<Undoable>();
+        List<Long> hidden = new ArrayList<Long>();
+
+        Random random = new Random(99);
+        for (int i = 0; i < 2000; i++) {
+            if (!undoables.isEmpty() && random.nextInt(3) == 0) {
+                int index = random.nextInt(undoables.size());
+                undoables.remove(index).undo();
+                Long id = hidden.remove(index);
+                int position = 0;
+                while (position < visible.size() && visible.get(position) < id) {
+                    position++;
+                }
+                visible.add(position, id);
+            } else if (!visible.isEmpty()) {
+                int position = random.nextInt(visible.size());
+                undoables.add(adapter.hide(position));
+                hidden.add(visible.remove(position));
+            }
+
+            assertEquals(visible.size(), adapter.getCount());
+            int position = random.nextInt(visible.size());
+            assertEquals((long) visible.get(position), adapter.getItemId(position));
+        }
+        for (int position = 0; position < visible.size(); position++) {
+            assertEquals((long) visible.get(position), adapter.getItemId(position));
+        }
+    }
+
+    @Test
+    public void keepsHiddenItemsAcrossChanges() {
+        ItemAdapter items = new ItemAdapter(10, true);
+        DismissableAdapter adapter = new DismissableAdapter(items, mCommitListener);
+        Undoable undoable = adapter.hide(5);
+
+        // Another item is inserted before the hidden one
+        items.ids.add(0, 100L);
+        items.notifyDataSetChanged();
+        assertEquals(10, adapter.getCount());
+        assertEquals(4, adapter.getItemId(5));
+        assertEquals(6, adapter.getItemId(6));
+
+        undoable.discard();
+        assertEquals(Arrays.asList("6:5"), mCommits);
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An adapter showing one fixed height text view per item, identified by ids.
+ */
+class ItemAdapter extends BaseAdapter {
+
+    static final int ITEM_HEIGHT = 40;
+
+    final List<Long> ids = new ArrayList<Long>();
+    int idLookups;
+    int observers;
+    private final boolean mStableIds;
+
+    /**
+     * Creates an adapter with the ids {@code 0} to {@code count - 1}.
+     */
+    ItemAdapter(int count, boolean stableIds) {
+        for (long id = 0; id < count; id++) {
+            ids.add(id);
+        }
+        mStableIds = stableIds;
+    }
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+        super.registerDataSetObserver(observer);
+        observers++;
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        super.unregisterDataSetObserver(observer);
+        observers--;
+    }
+
+    @Override
+    public int getCount() {
+        return ids.size();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return ids.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        idLookups++;
+        return ids.get(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mStableIds;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = (TextView) convertView;
+        if (view == null) {
+            view = new TextView(parent.getContext());
+            view.setLayoutParams(new ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+        }
+        view.setText("Item " + ids.get(position));
+        return view;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+/**
+ * Animations driven by the main looper instead of the animation framework,
+ * so tests control them by advancing the clock of the looper. Property
+ * animations jump to their end values and end after their duration, tickers
+ * call back every {@link #FRAME_TIME} ms.
+ */
+class ManualAnimations extends AnimationCompat {
+
+    static final long FRAME_TIME = 16;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    int frames;
+
+    @Override
+    void setTranslationX(View view, float translationX) {
+        view.setTranslationX(translationX);
+    }
+
+    @Override
+    void setTranslationY(View view, float translationY) {
+        view.setTranslationY(translationY);
+    }
+
+    @Override
+    float getTranslationY(View view) {
+        return view.getTranslationY();
+    }
+
+    @Override
+    void setAlpha(View view, float alpha) {
+        view.setAlpha(alpha);
+    }
+
+    @Override
+    void animate(View view, float translationX, float alpha, long duration, Runnable endAction) {
+        view.setTranslationX(translationX);
+        view.setAlpha(alpha);
+        if (endAction != null) {
+            mHandler.postDelayed(endAction, duration);
+        }
+    }
+
+    @Override
+    Ticker newTicker(long duration, final Runnable onFrame) {
+        return new Ticker() {
+
+            private boolean mStarted;
+
+            private final Runnable mFrame = new Runnable() {
+                public void run() {
+                    frames++;
+                    onFrame.run();
+                    if (mStarted) {
+                        mHandler.postDelayed(this, FRAME_TIME);
+                    }
+                }
+            };
+
+            public void start() {
+                mStarted = true;
+                mHandler.postDelayed(mFrame, FRAME_TIME);
+            }
+
+            public void stop() {
+                mStarted = false;
+                mHandler.removeCallbacks(mFrame);
+            }
+
+            public boolean isStarted() {
+                return mStarted;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ListView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 18)
+public class PendingDismissQueueTest {
+
+    private final PendingDismissQueue mQueue = new PendingDismissQueue();
+    private ItemAdapter mAdapter;
+    private ListView mListView;
+
+    @Before
+    public void setUp() {
+        mAdapter = new ItemAdapter(100, true);
+        mListView = new ListView(Robolectric.application);
+        mListView.setAdapter(mAdapter);
+    }
+
+    @Test
+    public void keepsEntriesSortedDescending() {
+        int[] positions = { 5, 9, 1, 7, 12, 3, 0, 8, 11, 2 };
+        View[] views = new View[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            views[i] = new View(Robolectric.application);
+            mQueue.add(positions[i], positions[i], views[i], 10 + i, i);
+        }
+
+        assertEquals(positions.length, mQueue.size);
+        int[] sorted = new int[positions.length];
+        System.arraycopy(mQueue.positions, 0, sorted, 0, sorted.length);
+        assertArrayEquals(new int[] { 12, 11, 9, 8, 7, 5, 3, 2, 1, 0 }, sorted);
+        for (int i = 0; i < mQueue.size; i++) {
+            // All parallel arrays moved together
+            assertEquals(mQueue.positions[i], mQueue.ids[i]);
+            int added = indexOf(positions, mQueue.positions[i]);
+            assertSame(views[added], mQueue.views[i]);
+            assertEquals(10 + added, mQueue.originalHeights[i]);
+            assertEquals(added, mQueue.startTimes[i]);
+        }
+
+        mQueue.clear();
+        assertEquals(0, mQueue.size);
+    }
+
+    @Test
+    public void handsOutExactPositions() {
+        mQueue.add(3, 3, null, 0, 0);
+        mQueue.add(9, 9, null, 0, 0);
+        mQueue.add(5, 5, null, 0, 0);
+
+        int[] batch = mQueue.getPositions(2);
+        assertArrayEquals(new int[] { 9, 5 }, batch);
+        // Batches of the same size reuse the array
+        assertSame(batch, mQueue.getPositions(2));
+        assertArrayEquals(new int[] { 9, 5, 3 }, mQueue.getPositions(3));
+    }
+
+    @Test
+    public void resolvesCurrentPositions() {
+        mQueue.add(10, 10, null, 0, 0);
+        mQueue.add(20, 20, null, 0, 0);
+        mQueue.add(30, 30, null, 0, 0);
+
+        // Item 10 moves to the end, item 20 is removed by someone else
+        mAdapter.ids.remove(Long.valueOf(10));
+        mAdapter.ids.add(10L);
+        mAdapter.ids.remove(Long.valueOf(20));
+        mAdapter.notifyDataSetChanged();
+
+        assertEquals(2, mQueue.resolvePositions(mListView));
+        assertEquals(98, mQueue.positions[0]);
+        assertEquals(10, mQueue.ids[0]);
+        assertEquals(28, mQueue.positions[1]);
+        assertEquals(30, mQueue.ids[1]);
+        assertEquals(-1, mQueue.positions[2]);
+    }
+
+    @Test
+    public void checksUnmovedPositionsFirst() {
+        mQueue.add(10, 10, null, 0, 0);
+        mQueue.add(20, 20, null, 0, 0);
+        mAdapter.ids.add(100L);
+        mAdapter.notifyDataSetChanged();
+
+        mAdapter.idLookups = 0;
+        assertEquals(2, mQueue.resolvePositions(mListView));
+        assertEquals(2, mAdapter.idLookups);
+        assertEquals(20, mQueue.positions[0]);
+        assertEquals(10, mQueue.positions[1]);
+    }
+
+    @Test
+    public void keepsPositionsWithoutStableIds() {
+        mQueue.add(10, AdapterView.INVALID_ROW_ID, null, 0, 0);
+        mQueue.add(20, AdapterView.INVALID_ROW_ID, null, 0, 0);
+        mAdapter.ids.remove(0);
+        mAdapter.notifyDataSetChanged();
+
+        assertEquals(2, mQueue.resolvePositions(mListView));
+        assertEquals(20, mQueue.positions[0]);
+        assertEquals(10, mQueue.positions[1]);
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
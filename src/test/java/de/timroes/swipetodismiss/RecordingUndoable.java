@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import java.util.List;
+
+/**
+ * An {@link Undoable} logging its undo and discard as {@code "undo <name>"}
+ * and {@code "discard <name>"}, so tests can check the order of the calls.
+ */
+class RecordingUndoable extends Undoable {
+
+    private final List<String> mLog;
+    private final String mName;
+    private final String mJournalKey;
+
+    RecordingUndoable(List<String> log, String name) {
+        this(log, name, null);
+    }
+
+    RecordingUndoable(List<String> log, String name, String journalKey) {
+        mLog = log;
+        mName = name;
+        mJournalKey = journalKey;
+    }
+
+    @Override
+    public void undo() {
+        synchronized (mLog) {
+            mLog.add("undo " + mName);
+        }
+    }
+
+    @Override
+    public void discard() {
+        synchronized (mLog) {
+            mLog.add("discard " + mName);
+        }
+    }
+
+    @Override
+    public String getJournalKey() {
+        return mJournalKey;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+
+}
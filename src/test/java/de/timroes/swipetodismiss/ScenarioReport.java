@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Prints the wall time and the bytes allocated by every test it's applied
+ * to, so the performance of the scenarios can be compared between local runs.
+ */
+class ScenarioReport implements TestRule {
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                AllocationCounter allocations = AllocationCounter.isSupported()
+                        ? new AllocationCounter() : null;
+                if (allocations != null) {
+                    allocations.start();
+                }
+                long start = System.nanoTime();
+                try {
+                    base.evaluate();
+                } finally {
+                    long wallTime = (System.nanoTime() - start) / 1000;
+                    System.out.println(String.format("%s.%s: %d.%03d ms, %s allocated",
+                            description.getTestClass().getSimpleName(), description.getMethodName(),
+                            wallTime / 1000, wallTime % 1000,
+                            allocations != null ? allocations.stop() + " bytes" : "unknown bytes"));
+                }
+            }
+        };
+    }
+
+}
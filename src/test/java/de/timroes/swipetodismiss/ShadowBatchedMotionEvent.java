@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.view.MotionEvent;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowMotionEvent;
+
+/**
+ * Adds the historical samples of a batched move and the offset between the
+ * raw and the local coordinates to the {@link MotionEvent} of Robolectric,
+ * which supports neither.
+ */
+@Implements(MotionEvent.class)
+public class ShadowBatchedMotionEvent extends ShadowMotionEvent {
+
+    private float[] mHistoricalX = new float[0];
+    private float[] mHistoricalY = new float[0];
+    private long[] mHistoricalTimes = new long[0];
+    private float mRawOffsetX;
+    private float mRawOffsetY;
+
+    /**
+     * Sets the samples batched into the event, oldest first, in local
+     * coordinates.
+     */
+    void setHistory(float[] x, float[] y, long[] times) {
+        mHistoricalX = x;
+        mHistoricalY = y;
+        mHistoricalTimes = times;
+    }
+
+    /**
+     * Sets the location of the view receiving the event on the screen.
+     */
+    void setRawOffset(float offsetX, float offsetY) {
+        mRawOffsetX = offsetX;
+        mRawOffsetY = offsetY;
+    }
+
+    @Implementation
+    public final int getHistorySize() {
+        return mHistoricalTimes.length;
+    }
+
+    @Implementation
+    public final float getHistoricalX(int pos) {
+        return mHistoricalX[pos];
+    }
+
+    @Implementation
+    public final float getHistoricalY(int pos) {
+        return mHistoricalY[pos];
+    }
+
+    @Implementation
+    public final long getHistoricalEventTime(int pos) {
+        return mHistoricalTimes[pos];
+    }
+
+    @Override
+    @Implementation
+    public float getRawX() {
+        return super.getRawX() + mRawOffsetX;
+    }
+
+    @Override
+    @Implementation
+    public float getRawY() {
+        return super.getRawY() + mRawOffsetY;
+    }
+
+}
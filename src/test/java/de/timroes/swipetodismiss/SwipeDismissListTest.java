@@ -0,0 +1,666 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import android.content.ComponentCallbacks2;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.AbsListView;
+import android.widget.ListView;
+
+import de.timroes.swipetodismiss.DismissList.OnBatchDismissCallback;
+import de.timroes.swipetodismiss.DismissList.OnDismissCallback;
+import de.timroes.swipetodismiss.DismissList.UndoMode;
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds synthetic touch events into {@link SwipeDismissList#onTouch} of a
+ * list with thousands of items and advances the clock of the main looper,
+ * which also drives the animations. Every scenario reports its wall time and
+ * allocations; the first scenario of a run also pays for loading the Android
+ * classes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml", emulateSdk = 18)
+public class SwipeDismissListTest {
+
+    private static final int ITEMS = 5000;
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int MOVES = 10;
+    private static final long EVENT_TIME = 8;
+    private static final long SETTLE_TIME = 2000;
+
+    @Rule
+    public final ScenarioReport mReport = new ScenarioReport();
+
+    private final List<String> mLog = new ArrayList<String>();
+    private final int[] mLocation = new int[2];
+    private Scheduler mScheduler;
+    private ItemAdapter mAdapter;
+    private ListView mListView;
+    private RecordingPresenter mPresenter;
+    private ManualAnimations mAnimations;
+    private SwipeDismissList mList;
+
+    /**
+     * Logs the calls of the undo coordinator instead of showing a popup.
+     */
+    private class RecordingPresenter implements UndoPresenter {
+
+        Host host;
+        boolean showing;
+
+        public void setHost(Host host) {
+            this.host = host;
+        }
+
+        public void show(AbsListView listView, int position, CharSequence text,
+                         CharSequence buttonLabel) {
+            mLog.add((showing ? "update " : "show ") + position + " " + text);
+            showing = true;
+        }
+
+        public void update(CharSequence text, CharSequence buttonLabel) {
+            mLog.add("update " + text);
+        }
+
+        public void hide() {
+            if (showing) {
+                mLog.add("hide");
+            }
+            showing = false;
+        }
+
+        public boolean isShowing() {
+            return showing;
+        }
+
+    }
+
+    /**
+     * Removes the dismissed item from the adapter and inserts it again on undo.
+     */
+    private class RemovingCallback implements OnDismissCallback {
+
+        public Undoable onDismiss(AbsListView listView, final int position) {
+            mLog.add("dismiss " + position);
+            return remove(position);
+        }
+
+    }
+
+    /**
+     * Logs the undos routed back to it as {@code "<name> undo <undoable>"}.
+     * Its items are dismissed without changing the adapter.
+     */
+    private class NamedList extends SwipeDismissList {
+
+        private final String mName;
+
+        NamedList(final String name, ListView listView, UndoCoordinator coordinator) {
+            super(listView, new OnDismissCallback() {
+                public Undoable onDismiss(AbsListView listView, int position) {
+                    return new RecordingUndoable(mLog, name + " " + position);
+                }
+            }, coordinator);
+            mName = name;
+        }
+
+        @Override
+        protected void onUndo(Undoable undoable) {
+            mLog.add(mName + " undo " + undoable);
+            super.onUndo(undoable);
+        }
+
+    }
+
+    @Before
+    public void setUp() {
+        mScheduler = Robolectric.getUiThreadScheduler();
+        mAdapter = new ItemAdapter(ITEMS, true);
+        mListView = new ListView(Robolectric.application);
+        mListView.setAdapter(mAdapter);
+        layout();
+    }
+
+    private void createList(OnDismissCallback callback, UndoMode mode) {
+        mList = new SwipeDismissList(mListView, callback, mode);
+        mAnimations = new ManualAnimations();
+        mList.mAnimations = mAnimations;
+        mPresenter = new RecordingPresenter();
+        mList.getUndoCoordinator().setUndoPresenter(mPresenter);
+    }
+
+    @Test
+    public void dismissesAfterCollapse() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        swipe(3, 300);
+        // The item is still sliding out
+        assertTrue(mLog.isEmpty());
+
+        advance(SETTLE_TIME);
+        assertEquals(Arrays.asList("dismiss 3", "show 3 Item deleted"), mLog);
+        assertEquals(ITEMS - 1, mAdapter.getCount());
+        assertFalse(mList.mCollapseAnimator.isStarted());
+        assertEquals(0, mList.mPendingDismisses.size);
+        assertEquals(0, mList.mDismissAnimationRefCount);
+        // The collapsed view has been reset for reuse
+        View view = mListView.getChildAt(3);
+        assertEquals(ItemAdapter.ITEM_HEIGHT, view.getLayoutParams().height);
+        assertEquals(0f, view.getTranslationX(), 0f);
+        assertEquals(1f, view.getAlpha(), 0f);
+    }
+
+    @Test
+    public void slideCollapseLaysOutOnce() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        mList.setCollapseMode(SwipeDismissList.CollapseMode.SLIDE);
+        View following = mListView.getChildAt(4);
+        swipe(3, 300);
+        layout();
+
+        // Lay out the list after every frame that requested it, like a traversal would
+        int layouts = 0;
+        float slid = 0;
+        for (long time = 0; time < SETTLE_TIME; time += ManualAnimations.FRAME_TIME) {
+            advance(ManualAnimations.FRAME_TIME);
+            slid = Math.min(slid, following.getTranslationY());
+            if (mListView.isLayoutRequested()) {
+                layouts++;
+                layout();
+            }
+        }
+        assertEquals(Arrays.asList("dismiss 3", "show 3 Item deleted"), mLog);
+        // The rows below slid up over the dismissed one, and only the removal laid out the list
+        assertTrue(slid < 0);
+        assertEquals(1, layouts);
+        assertEquals(0f, following.getTranslationY(), 0f);
+        for (int i = 0; i < mListView.getChildCount(); i++) {
+            assertEquals(0f, mListView.getChildAt(i).getTranslationY(), 0f);
+        }
+    }
+
+    @Test
+    public void tapDoesNotDismiss() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        long downTime = SystemClock.uptimeMillis();
+        float y = centerOf(2);
+        touch(downTime, MotionEvent.ACTION_DOWN, 100, y);
+        advance(EVENT_TIME);
+        touch(downTime, MotionEvent.ACTION_MOVE, 103, y);
+        advance(EVENT_TIME);
+        touch(downTime, MotionEvent.ACTION_UP, 103, y);
+
+        advance(SETTLE_TIME);
+        assertTrue(mLog.isEmpty());
+        assertEquals(0, mScheduler.size());
+    }
+
+    @Test
+    public void cancelledSwipeMovesBack() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        long downTime = SystemClock.uptimeMillis();
+        float y = centerOf(2);
+        touch(downTime, MotionEvent.ACTION_DOWN, 100, y);
+        for (int i = 1; i <= MOVES; i++) {
+            advance(EVENT_TIME);
+            touch(downTime, MotionEvent.ACTION_MOVE, 100 + i * 30, y);
+        }
+        View view = mListView.getChildAt(2);
+        assertEquals(300f, view.getTranslationX(), 0f);
+        touch(downTime, MotionEvent.ACTION_CANCEL, 400, y);
+
+        advance(SETTLE_TIME);
+        assertTrue(mLog.isEmpty());
+        assertEquals(0f, view.getTranslationX(), 0f);
+        assertEquals(1f, view.getAlpha(), 0f);
+    }
+
+    @Test
+    public void pauseDuringSwipeDropsNoFrames() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        DismissMetrics metrics = new DismissMetrics();
+        mList.setMetricsListener(metrics);
+        long downTime = SystemClock.uptimeMillis();
+        float y = centerOf(2);
+        touch(downTime, MotionEvent.ACTION_DOWN, 100, y);
+        for (int i = 1; i <= MOVES; i++) {
+            // The finger rests for half a second in the middle of the swipe
+            advance(i == MOVES / 2 ? 500 : EVENT_TIME);
+            touch(downTime, MotionEvent.ACTION_MOVE, 100 + i * 30, y);
+        }
+        touch(downTime, MotionEvent.ACTION_CANCEL, 400, y);
+
+        advance(SETTLE_TIME);
+        assertEquals(0, metrics.getDroppedSwipeFrames());
+    }
+
+    @Test
+    public void batchesSwipesDuringCollapse() {
+        createList(new OnBatchDismissCallback() {
+            public Undoable onDismiss(AbsListView listView, int[] positions) {
+                mLog.add("batch " + Arrays.toString(positions));
+                return null;
+            }
+
+            public Undoable onDismiss(AbsListView listView, int position) {
+                return onDismiss(listView, new int[] { position });
+            }
+        }, UndoMode.SINGLE_UNDO);
+
+        swipe(2, 300);
+        swipe(7, -300);
+        swipe(5, 300);
+        assertEquals(3, mList.mDismissAnimationRefCount);
+
+        advance(SETTLE_TIME);
+        assertEquals(Arrays.asList("batch [7, 5, 2]"), mLog);
+        // One shared animator drove all collapses
+        assertTrue(mAnimations.frames < SETTLE_TIME / ManualAnimations.FRAME_TIME);
+    }
+
+    @Test
+    public void dismissesBatchFromBottomToTop() {
+        createList(new RemovingCallback(), UndoMode.MULTI_UNDO);
+        swipe(2, 300);
+        swipe(7, 300);
+
+        advance(SETTLE_TIME);
+        // Removing the lower item first keeps the position of the upper one valid
+        assertEquals(Arrays.asList("dismiss 7", "dismiss 2", "show 2 2 items deleted"), mLog);
+        assertEquals(Long.valueOf(3), mAdapter.ids.get(2));
+        assertEquals(Long.valueOf(9), mAdapter.ids.get(7));
+    }
+
+    @Test
+    public void resolvesItemsMovedDuringCollapse() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        swipe(4, 300);
+
+        // A sync inserts two items at the top while the item collapses
+        advance(100);
+        mAdapter.ids.add(0, -1L);
+        mAdapter.ids.add(0, -2L);
+        mAdapter.notifyDataSetChanged();
+
+        advance(SETTLE_TIME);
+        assertEquals("dismiss 6", mLog.get(0));
+        assertFalse(mAdapter.ids.contains(4L));
+    }
+
+    @Test
+    public void keepsOneHideMessageQueued() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        mList.setAutoHideDelay(3000);
+        swipe(1, 300);
+        advance(SETTLE_TIME);
+        assertTrue(mPresenter.showing);
+        assertEquals(0, mScheduler.size());
+
+        // Scrolling around starts the countdown, without queueing a message per event
+        long downTime = SystemClock.uptimeMillis();
+        for (int i = 0; i < 100; i++) {
+            touch(downTime, MotionEvent.ACTION_MOVE, 100, 100 + i);
+            advance(EVENT_TIME);
+        }
+        assertEquals(1, mScheduler.size());
+
+        advance(3000);
+        assertFalse(mPresenter.showing);
+        assertEquals("discard 1", mLog.get(mLog.size() - 2));
+        assertEquals("hide", mLog.get(mLog.size() - 1));
+        assertEquals(0, mScheduler.size());
+    }
+
+    @Test
+    public void pausedHideKeepsRemainingDelay() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        mList.setAutoHideDelay(3000);
+        swipe(1, 300);
+        advance(SETTLE_TIME);
+        mList.hidePopup();
+        advance(1000);
+
+        // The activity is stopped for a while
+        mList.pauseHidePopup();
+        assertEquals(2000, mList.getUndoCoordinator().getRemainingHideDelay());
+        advance(10000);
+        assertTrue(mPresenter.showing);
+
+        mList.resumeHidePopup();
+        advance(1999);
+        assertTrue(mPresenter.showing);
+        advance(1);
+        assertFalse(mPresenter.showing);
+        assertEquals(Arrays.asList("discard 1", "hide"), mLog.subList(mLog.size() - 2, mLog.size()));
+    }
+
+    @Test
+    public void trimsMemoryOnlyWhenLow() {
+        createList(new RemovingCallback(), UndoMode.MULTI_UNDO);
+        // Discards are left to the executor, unless they are flushed
+        mList.setDiscardExecutor(new Executor() {
+            public void execute(Runnable command) {
+            }
+        });
+        int[] keeping = {
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE,
+                ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        };
+        int[] flushing = {
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW,
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL,
+                ComponentCallbacks2.TRIM_MEMORY_BACKGROUND,
+                ComponentCallbacks2.TRIM_MEMORY_MODERATE,
+                ComponentCallbacks2.TRIM_MEMORY_COMPLETE
+        };
+
+        // Swiping the second item removes the ids 1, 2, 3, ...
+        long id = 0;
+        long stored = 1;
+        for (int level : keeping) {
+            swipe(1, 300);
+            advance(SETTLE_TIME);
+            id++;
+            mLog.clear();
+            mList.onTrimMemory(level);
+            assertTrue(mLog.isEmpty());
+            assertTrue(mPresenter.showing);
+        }
+        for (int level : flushing) {
+            swipe(1, 300);
+            advance(SETTLE_TIME);
+            id++;
+            mLog.clear();
+            mList.onTrimMemory(level);
+            // All stored undos are discarded, also the ones kept by the lower levels
+            for (; stored <= id; stored++) {
+                assertTrue(level + ": " + mLog, mLog.contains("discard " + stored));
+            }
+            assertFalse(mPresenter.showing);
+        }
+    }
+
+    @Test
+    public void undoesCollapsedUndosInReverseOrder() {
+        createList(new RemovingCallback(), UndoMode.COLLAPSED_UNDO);
+        swipe(1, 300);
+        advance(SETTLE_TIME);
+        swipe(1, 300);
+        advance(SETTLE_TIME);
+        swipe(1, 300);
+        advance(SETTLE_TIME);
+        assertEquals(ITEMS - 3, mAdapter.getCount());
+
+        mLog.clear();
+        mPresenter.host.onUndoClick();
+        assertEquals(Arrays.asList("undo 3", "undo 2", "undo 1", "hide"), mLog);
+        assertEquals(ITEMS, mAdapter.getCount());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Long.valueOf(i), mAdapter.ids.get(i));
+        }
+    }
+
+    @Test
+    public void routesSharedUndosToTheirList() {
+        UndoCoordinator coordinator = new UndoCoordinator(UndoMode.MULTI_UNDO);
+        mPresenter = new RecordingPresenter();
+        coordinator.setUndoPresenter(mPresenter);
+        ListView otherListView = new ListView(Robolectric.application);
+        otherListView.setAdapter(new ItemAdapter(10, true));
+        NamedList first = new NamedList("first", mListView, coordinator);
+        NamedList second = new NamedList("second", otherListView, coordinator);
+
+        first.dismiss(2);
+        second.dismiss(5);
+        first.dismiss(7);
+
+        mLog.clear();
+        mPresenter.host.onUndoClick();
+        mPresenter.host.onUndoClick();
+        mPresenter.host.onUndoClick();
+        assertEquals(Arrays.asList(
+                "first undo first 7", "undo first 7", "update 2 items deleted",
+                "second undo second 5", "undo second 5", "update Item deleted",
+                "first undo first 2", "undo first 2", "hide"), mLog);
+    }
+
+    @Test
+    public void dismissesManyItemsInLargeList() {
+        createList(new RemovingCallback(), UndoMode.MULTI_UNDO);
+        for (int i = 0; i < 50; i++) {
+            swipe(i % 10, i % 2 == 0 ? 300 : -300);
+            if (i % 5 == 4) {
+                advance(SETTLE_TIME);
+                layout();
+            }
+        }
+        advance(SETTLE_TIME);
+        assertEquals(ITEMS - 50, mAdapter.getCount());
+        assertEquals(0, mList.mPendingDismisses.size);
+    }
+
+    @Test
+    public void swipesDisabledItems() {
+        mAdapter = new ItemAdapter(ITEMS, true) {
+            @Override
+            public boolean isEnabled(int position) {
+                return false;
+            }
+        };
+        mListView.setAdapter(mAdapter);
+        layout();
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+
+        swipe(2, 300);
+        advance(SETTLE_TIME);
+        assertEquals("dismiss 2", mLog.get(0));
+    }
+
+    @Test
+    public void doesNotSwipeInlineUndoRow() {
+        InlineUndoPresenter inline = new InlineUndoPresenter(mAdapter);
+        mListView.setAdapter(inline);
+        layout();
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        mList.getUndoCoordinator().setUndoPresenter(inline);
+
+        swipe(3, 300);
+        advance(SETTLE_TIME);
+        layout();
+        assertTrue(inline.isUndoRow(3));
+        assertEquals(Arrays.asList("dismiss 3"), mLog);
+
+        swipe(3, 300);
+        advance(SETTLE_TIME);
+        assertEquals(Arrays.asList("dismiss 3"), mLog);
+        assertEquals(0f, mListView.getChildAt(3).getTranslationX(), 0f);
+
+        // The presenter only observes the adapter while the list observes it
+        assertEquals(1, mAdapter.observers);
+        mListView.setAdapter(null);
+        assertEquals(0, mAdapter.observers);
+    }
+
+    @Test
+    @Config(shadows = ShadowBatchedMotionEvent.class)
+    public void feedsBatchedSamples() {
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        TouchTrace trace = new TouchTrace(16);
+        mList.setTouchTrace(trace);
+        float y = centerOf(2);
+        long downTime = SystemClock.uptimeMillis();
+        touch(downTime, MotionEvent.ACTION_DOWN, 100, y);
+
+        // The list is 25 pixels below the top of the screen
+        advance(4 * EVENT_TIME);
+        MotionEvent move = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(),
+                MotionEvent.ACTION_MOVE, 190, y - 25, 0);
+        ShadowBatchedMotionEvent shadow = (ShadowBatchedMotionEvent) Robolectric.shadowOf_(move);
+        shadow.setRawOffset(0, 25);
+        shadow.setHistory(new float[] { 110, 130, 160 }, new float[] { y - 25, y - 25, y - 25 },
+                new long[] { downTime + 8, downTime + 16, downTime + 24 });
+        assertTrue(mList.onTouch(mListView, move));
+        move.recycle();
+
+        assertEquals(5, trace.size());
+        float[] xs = { 100, 110, 130, 160, 190 };
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(i == 0 ? TouchTrace.ACTION_DOWN : TouchTrace.ACTION_MOVE, trace.getAction(i));
+            assertEquals(downTime + i * EVENT_TIME, trace.getTime(i));
+            assertEquals(xs[i], trace.getX(i), 0f);
+            assertEquals(y, trace.getY(i), 0f);
+        }
+        // The swipe started within the batch
+        assertEquals(SwipeGesture.Decision.NONE, trace.getDecision(1));
+        assertEquals(SwipeGesture.Decision.START, trace.getDecision(2));
+        assertEquals(SwipeGesture.Decision.UPDATE, trace.getDecision(4));
+        assertEquals(90f, mListView.getChildAt(2).getTranslationX(), 0f);
+    }
+
+    @Test
+    public void touchDownDoesNotAllocate() {
+        assertTrue("This JVM can't count allocations", AllocationCounter.isSupported());
+        createList(new RemovingCallback(), UndoMode.SINGLE_UNDO);
+        // The touch handling of the list itself isn't part of the down path
+        View target = new View(Robolectric.application) {
+            @Override
+            public boolean onTouchEvent(MotionEvent event) {
+                return false;
+            }
+        };
+        // The last visible item is found last by the hit test
+        int position = mListView.getLastVisiblePosition();
+        long time = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN,
+                100, centerOf(position), 0);
+        MotionEvent cancel = MotionEvent.obtain(time, time, MotionEvent.ACTION_CANCEL,
+                100, centerOf(position), 0);
+
+        AllocationCounter allocations = new AllocationCounter();
+        long touchDown = 0;
+        long shadows = 0;
+        for (int i = 0; i < 20000; i++) {
+            allocations.start();
+            mList.onTouch(target, down);
+            long allocated = allocations.stop();
+            assertEquals(position, mList.mDownPosition);
+            mList.onTouch(target, cancel);
+
+            allocations.start();
+            readDown(down);
+            long read = allocations.stop();
+            // Warm up first, so class loading and compilation don't count
+            if (i >= 19000) {
+                touchDown += allocated;
+                shadows += read;
+            }
+        }
+        assertEquals(shadows, touchDown);
+    }
+
+    /**
+     * Reads the event the way the touch down path does. The MotionEvent of
+     * Robolectric boxes the result of every call, so the down path may only
+     * allocate as much as these reads.
+     */
+    private static void readDown(MotionEvent event) {
+        event.getActionMasked();
+        event.getRawX();
+        event.getRawY();
+        event.getPointerId(0);
+        event.getRawX();
+        event.getRawY();
+        event.getEventTime();
+    }
+
+    /**
+     * Swipes the item at the given position horizontally by the given distance
+     * within {@link #MOVES} touch events.
+     */
+    private void swipe(int position, float distance) {
+        float x = mLocation[0] + WIDTH / 2 - distance / 2;
+        float y = centerOf(position);
+        long downTime = SystemClock.uptimeMillis();
+        touch(downTime, MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 1; i <= MOVES; i++) {
+            advance(EVENT_TIME);
+            touch(downTime, MotionEvent.ACTION_MOVE, x + distance * i / MOVES, y);
+        }
+        advance(EVENT_TIME);
+        touch(downTime, MotionEvent.ACTION_UP, x + distance, y);
+    }
+
+    private void touch(long downTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        mList.onTouch(mListView, event);
+        event.recycle();
+    }
+
+    private float centerOf(int position) {
+        View child = mListView.getChildAt(position - mListView.getFirstVisiblePosition());
+        return mLocation[1] + child.getTop() + child.getHeight() / 2f;
+    }
+
+    private void advance(long millis) {
+        mScheduler.advanceBy(millis);
+    }
+
+    private void layout() {
+        mListView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mListView.layout(0, 0, WIDTH, HEIGHT);
+        mListView.getLocationOnScreen(mLocation);
+    }
+
+    private Undoable remove(int position) {
+        final Long id = mAdapter.ids.remove(position);
+        mAdapter.notifyDataSetChanged();
+        return new RecordingUndoable(mLog, String.valueOf(id)) {
+            @Override
+            public void undo() {
+                super.undo();
+                int index = 0;
+                while (index < mAdapter.ids.size() && mAdapter.ids.get(index) < id) {
+                    index++;
+                }
+                mAdapter.ids.add(index, id);
+                mAdapter.notifyDataSetChanged();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.SwipeGesture.Decision;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SwipeGestureTest {
+
+    private static final int SLOP = 16;
+    private static final int MIN_FLING = 100;
+    private static final int MAX_FLING = 8000;
+    private static final int WIDTH = TouchFuzzer.WIDTH;
+
+    @Rule
+    public final ScenarioReport mReport = new ScenarioReport();
+
+    private SwipeGesture mGesture;
+
+    @Before
+    public void setUp() {
+        mGesture = new SwipeGesture(SLOP, MIN_FLING, MAX_FLING);
+        mGesture.setWidth(WIDTH);
+    }
+
+    @Test
+    public void tapIsNoSwipe() {
+        assertEquals(Decision.NONE, mGesture.down(100, 100, 0));
+        assertEquals(Decision.NONE, mGesture.move(105, 101, 10));
+        assertEquals(Decision.CANCEL, mGesture.up(105, 101, 20));
+        assertFalse(mGesture.isTracking());
+    }
+
+    @Test
+    public void slowDragBeyondHalfWidthDismisses() {
+        mGesture.down(10, 100, 0);
+        assertEquals(Decision.NONE, mGesture.move(10 + SLOP, 100, 100));
+        assertEquals(Decision.START, mGesture.move(10 + SLOP + 1, 100, 200));
+        assertEquals(Decision.UPDATE, mGesture.move(200, 100, 300));
+        assertEquals(190f, mGesture.getDeltaX(), 0f);
+        // Stop moving, so there's no fling
+        mGesture.move(10 + WIDTH / 2 + 1, 100, 400);
+        assertEquals(Decision.DISMISS_RIGHT, mGesture.up(10 + WIDTH / 2 + 1, 100, 600));
+    }
+
+    @Test
+    public void slowDragBelowHalfWidthIsCancelled() {
+        mGesture.down(300, 100, 0);
+        mGesture.move(200, 100, 100);
+        mGesture.move(100, 100, 300);
+        assertEquals(Decision.CANCEL, mGesture.up(100, 100, 500));
+    }
+
+    @Test
+    public void flingDismisses() {
+        mGesture.down(300, 100, 0);
+        for (int i = 1; i <= 10; i++) {
+            mGesture.move(300 - i * 12, 100, i * 8);
+        }
+        assertEquals(Decision.DISMISS_LEFT, mGesture.up(300 - 132, 100, 88));
+        assertEquals(-1500f, mGesture.getVelocityX(), 1f);
+    }
+
+    @Test
+    public void shortFlingIsCancelled() {
+        // Fast, but less than a fifth of the width
+        mGesture.down(300, 100, 0);
+        for (int i = 1; i <= 4; i++) {
+            mGesture.move(300 + i * 20, 100, i * 8);
+        }
+        assertEquals(Decision.CANCEL, mGesture.up(380, 100, 40));
+    }
+
+    @Test
+    public void velocityIgnoresOldSamples() {
+        mGesture.down(0, 100, 0);
+        mGesture.move(200, 100, 50);
+        // Held still for longer than the velocity horizon
+        for (long time = 60; time <= 300; time += 10) {
+            mGesture.move(200, 100, time);
+        }
+        assertEquals(Decision.CANCEL, mGesture.up(200, 100, 310));
+        assertEquals(0f, mGesture.getVelocityX(), 0f);
+    }
+
+    @Test
+    public void wrongDirectionMovesTheDownPoint() {
+        mGesture.setDirections(false, true);
+        mGesture.down(300, 100, 0);
+        assertEquals(Decision.NONE, mGesture.move(100, 100, 100));
+        assertEquals(Decision.NONE, mGesture.move(100 + SLOP, 100, 200));
+        assertEquals(Decision.START, mGesture.move(100 + SLOP + 1, 100, 300));
+        assertEquals(SLOP + 1, mGesture.getDeltaX(), 0f);
+    }
+
+    @Test
+    public void downWhileTrackingCancels() {
+        mGesture.down(0, 0, 0);
+        mGesture.move(100, 0, 10);
+        assertEquals(Decision.CANCEL, mGesture.down(0, 0, 20));
+        assertTrue(mGesture.isTracking());
+        assertFalse(mGesture.isSwiping());
+    }
+
+    @Test
+    public void fuzz() {
+        TouchFuzzer fuzzer = new TouchFuzzer(4711);
+        TouchTrace events = new TouchTrace(100000);
+        for (int i = 0; i < 2000; i++) {
+            fuzzer.nextGesture(events);
+        }
+
+        boolean[][] directions = { { true, true }, { true, false }, { false, true } };
+        for (boolean[] allowed : directions) {
+            mGesture.setDirections(allowed[0], allowed[1]);
+            fuzz(events, allowed[0], allowed[1]);
+        }
+    }
+
+    private void fuzz(TouchTrace events, boolean allowLeft, boolean allowRight) {
+        boolean started = false;
+        for (int i = 0; i < events.size(); i++) {
+            byte action = events.getAction(i);
+            boolean wasTracking = mGesture.isTracking();
+            Decision decision = TouchFuzzer.feed(mGesture, action,
+                    events.getX(i), events.getY(i), events.getTime(i));
+            String event = "event " + i + ": " + action + " -> " + decision;
+
+            switch (decision) {
+                case START:
+                    assertEquals(event, TouchTrace.ACTION_MOVE, action);
+                    assertFalse(event, started);
+                    started = true;
+                    break;
+                case UPDATE:
+                    assertEquals(event, TouchTrace.ACTION_MOVE, action);
+                    assertTrue(event, started);
+                    break;
+                case DISMISS_LEFT:
+                case DISMISS_RIGHT:
+                    assertEquals(event, TouchTrace.ACTION_UP, action);
+                    assertTrue(event, started);
+                    assertTrue(event, decision == Decision.DISMISS_LEFT ? allowLeft : allowRight);
+                    break;
+                case CANCEL:
+                    assertTrue(event, wasTracking);
+                    break;
+                default:
+                    break;
+            }
+
+            if (decision == Decision.START || decision == Decision.UPDATE) {
+                float deltaX = mGesture.getDeltaX();
+                assertTrue(event, deltaX < 0 ? allowLeft : deltaX <= 0 || allowRight);
+            }
+            if (action == TouchTrace.ACTION_DOWN) {
+                started = false;
+                assertTrue(event, mGesture.isTracking());
+            } else if (action != TouchTrace.ACTION_MOVE) {
+                started = false;
+                assertFalse(event, mGesture.isTracking());
+                assertFalse(event, Float.isNaN(mGesture.getVelocityX()));
+                assertFalse(event, Float.isNaN(mGesture.getVelocityY()));
+            }
+            assertEquals(event, started, mGesture.isSwiping());
+        }
+    }
+
+    @Test
+    public void feedingSamplesDoesNotAllocate() {
+        assertTrue("This JVM can't count allocations", AllocationCounter.isSupported());
+        TouchFuzzer fuzzer = new TouchFuzzer(42);
+        TouchTrace events = new TouchTrace(10000);
+        while (events.size() < 9000) {
+            fuzzer.nextGesture(events);
+        }
+        // Warm up, so class loading doesn't count
+        replay(events);
+
+        AllocationCounter allocations = new AllocationCounter();
+        allocations.start();
+        replay(events);
+        assertEquals(0, allocations.stop());
+    }
+
+    private void replay(TouchTrace events) {
+        for (int i = 0; i < events.size(); i++) {
+            TouchFuzzer.feed(mGesture, events.getAction(i), events.getX(i), events.getY(i),
+                    events.getTime(i));
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import java.util.Random;
+
+/**
+ * Generates random touch event streams and feeds them into a
+ * {@link SwipeGesture}. Unlike real input, the streams also contain events in
+ * unexpected order, e.g. moves without a down or gestures that never end.
+ */
+class TouchFuzzer {
+
+    static final int WIDTH = 480;
+
+    private final Random mRandom;
+    private long mTime;
+
+    TouchFuzzer(long seed) {
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * Generates the events of a random gesture into the given trace, without
+     * any decisions.
+     *
+     * @param trace The trace to add the events to.
+     */
+    void nextGesture(TouchTrace trace) {
+        float x = mRandom.nextInt(WIDTH);
+        float y = mRandom.nextInt(800);
+        // Velocity in pixels per millisecond
+        float velocity = (mRandom.nextFloat() - 0.5f) * 8;
+        int moves = mRandom.nextInt(40);
+
+        if (mRandom.nextInt(10) > 0) {
+            trace.record(TouchTrace.ACTION_DOWN, mTime, x, y, SwipeGesture.Decision.NONE);
+        }
+        for (int i = 0; i < moves; i++) {
+            int interval = mRandom.nextInt(10) == 0 ? mRandom.nextInt(200) : 1 + mRandom.nextInt(16);
+            mTime += interval;
+            if (mRandom.nextInt(8) == 0) {
+                velocity = -velocity;
+            }
+            x += velocity * interval + mRandom.nextFloat() * 4 - 2;
+            y += mRandom.nextFloat() * 10 - 5;
+            trace.record(TouchTrace.ACTION_MOVE, mTime, x, y, SwipeGesture.Decision.NONE);
+        }
+        mTime += 1 + mRandom.nextInt(16);
+        switch (mRandom.nextInt(10)) {
+            case 0:
+                trace.record(TouchTrace.ACTION_CANCEL, mTime, x, y, SwipeGesture.Decision.NONE);
+                break;
+            case 1:
+                // The gesture never ends
+                break;
+            default:
+                trace.record(TouchTrace.ACTION_UP, mTime, x, y, SwipeGesture.Decision.NONE);
+                break;
+        }
+        mTime += mRandom.nextInt(500);
+    }
+
+    /**
+     * Feeds one event into the given gesture.
+     *
+     * @return The decision of the gesture.
+     */
+    static SwipeGesture.Decision feed(SwipeGesture gesture, byte action, float x, float y, long time) {
+        switch (action) {
+            case TouchTrace.ACTION_DOWN:
+                return gesture.down(x, y, time);
+            case TouchTrace.ACTION_MOVE:
+                return gesture.move(x, y, time);
+            case TouchTrace.ACTION_UP:
+                return gesture.up(x, y, time);
+            default:
+                return gesture.cancel();
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.SwipeGesture.Decision;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TouchTraceTest {
+
+    @Rule
+    public final ScenarioReport mReport = new ScenarioReport();
+
+    @Test
+    public void restoresSerializedTrace() {
+        TouchTrace trace = new TouchTrace(4);
+        trace.setConfiguration(16, 100, 8000, 480, false, true);
+        trace.record(TouchTrace.ACTION_DOWN, 1000, 10.5f, 20, Decision.NONE);
+        trace.record(TouchTrace.ACTION_MOVE, 1016, 40, 21, Decision.START);
+        trace.record(TouchTrace.ACTION_UP, 1032, 300, 22, Decision.DISMISS_RIGHT);
+
+        TouchTrace restored = TouchTrace.fromByteArray(trace.toByteArray());
+        assertEquals(3, restored.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(trace.getAction(i), restored.getAction(i));
+            assertEquals(trace.getTime(i), restored.getTime(i));
+            assertEquals(trace.getX(i), restored.getX(i), 0f);
+            assertEquals(trace.getY(i), restored.getY(i), 0f);
+            assertEquals(trace.getDecision(i), restored.getDecision(i));
+        }
+        assertEquals(1000, restored.getTime(0));
+        assertEquals(10.5f, restored.getX(0), 0f);
+
+        SwipeGesture gesture = restored.newGesture();
+        gesture.down(100, 0, 0);
+        // Only swiping to the right is allowed
+        assertEquals(Decision.NONE, gesture.move(50, 0, 10));
+    }
+
+    @Test
+    public void keepsLatestEvents() {
+        TouchTrace trace = new TouchTrace(3);
+        for (int i = 0; i < 5; i++) {
+            trace.record(TouchTrace.ACTION_MOVE, i * 10, i, 0, Decision.NONE);
+        }
+        assertEquals(3, trace.size());
+        assertEquals(2f, trace.getX(0), 0f);
+        assertEquals(4f, trace.getX(2), 0f);
+        assertEquals(40, trace.getTime(2));
+
+        trace.clear();
+        assertEquals(0, trace.size());
+    }
+
+    @Test
+    public void rejectsOtherData() {
+        TouchTrace trace = new TouchTrace(2);
+        trace.record(TouchTrace.ACTION_DOWN, 0, 0, 0, Decision.NONE);
+        byte[] bytes = trace.toByteArray();
+
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        byte[] foreign = bytes.clone();
+        foreign[0] = 0;
+        for (byte[] invalid : new byte[][] { truncated, foreign, new byte[3] }) {
+            try {
+                TouchTrace.fromByteArray(invalid);
+                fail("Restored invalid trace.");
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void replaysRecordedFuzz() {
+        TouchTrace events = new TouchTrace(50000);
+        TouchFuzzer fuzzer = new TouchFuzzer(1234);
+        for (int i = 0; i < 500; i++) {
+            fuzzer.nextGesture(events);
+        }
+
+        // Record the events the way SwipeDismissList does, into a trace that wraps
+        SwipeGesture gesture = new SwipeGesture(16, 100, 8000);
+        gesture.setWidth(TouchFuzzer.WIDTH);
+        TouchTrace trace = new TouchTrace(events.size() / 3);
+        trace.setConfiguration(16, 100, 8000, TouchFuzzer.WIDTH, true, true);
+        for (int i = 0; i < events.size(); i++) {
+            byte action = events.getAction(i);
+            Decision decision = TouchFuzzer.feed(gesture, action, events.getX(i),
+                    events.getY(i), events.getTime(i));
+            trace.record(action, events.getTime(i), events.getX(i), events.getY(i), decision);
+        }
+
+        TouchTrace restored = TouchTrace.fromByteArray(trace.toByteArray());
+        final List<Decision> replayed = new ArrayList<Decision>();
+        int mismatches = new TouchTraceReplayer(restored).replay(
+                new TouchTraceReplayer.OnReplayListener() {
+                    public void onEvent(int index, Decision recorded, Decision decision) {
+                        replayed.add(decision);
+                    }
+                });
+        assertEquals(0, mismatches);
+        assertTrue(replayed.size() > 0);
+
+        // A different configuration takes different decisions
+        SwipeGesture other = new SwipeGesture(100, 100, 8000);
+        other.setWidth(TouchFuzzer.WIDTH);
+        assertTrue(new TouchTraceReplayer(restored).replay(other, null) > 0);
+    }
+
+    @Test
+    public void keepsConfigurationOfEveryDown() {
+        TouchTrace trace = new TouchTrace(16);
+        // The list is rotated and switched to right to left between the gestures
+        recordSwipe(trace, 480, false, true, 300);
+        recordSwipe(trace, 800, true, false, -500);
+
+        TouchTrace restored = TouchTrace.fromByteArray(trace.toByteArray());
+        assertEquals(Decision.DISMISS_RIGHT, restored.getDecision(3));
+        assertEquals(Decision.DISMISS_LEFT, restored.getDecision(7));
+        assertEquals(0, new TouchTraceReplayer(restored).replay(null));
+        // The configuration of the first gesture doesn't allow the second one
+        assertTrue(new TouchTraceReplayer(restored).replay(restored.newGesture(), null) > 0);
+        assertEquals(800, restored.newGesture(4).getWidth());
+
+        try {
+            restored.newGesture(1);
+            fail("Created gesture for a move event.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void skipsEventsBeforeFirstDown() {
+        TouchTrace trace = new TouchTrace(8);
+        trace.record(TouchTrace.ACTION_MOVE, 0, 200, 0, Decision.UPDATE);
+        trace.record(TouchTrace.ACTION_UP, 10, 400, 0, Decision.DISMISS_RIGHT);
+        trace.record(TouchTrace.ACTION_DOWN, 20, 0, 0, Decision.NONE);
+        trace.record(TouchTrace.ACTION_UP, 30, 0, 0, Decision.CANCEL);
+
+        final List<Integer> indices = new ArrayList<Integer>();
+        int mismatches = new TouchTraceReplayer(trace).replay(
+                new TouchTraceReplayer.OnReplayListener() {
+                    public void onEvent(int index, Decision recorded, Decision replayed) {
+                        indices.add(index);
+                    }
+                });
+        assertEquals(0, mismatches);
+        assertEquals(2, indices.size());
+        assertEquals(2, (int) indices.get(0));
+    }
+
+    private static void recordSwipe(TouchTrace trace, int width, boolean allowLeft,
+                                    boolean allowRight, float distance) {
+        trace.setConfiguration(16, 100, 8000, width, allowLeft, allowRight);
+        SwipeGesture gesture = new SwipeGesture(16, 100, 8000);
+        gesture.setWidth(width);
+        gesture.setDirections(allowLeft, allowRight);
+        long time = trace.size() > 0 ? trace.getTime(trace.size() - 1) + 1000 : 0;
+        float x = width / 2;
+        trace.record(TouchTrace.ACTION_DOWN, time, x, 0, gesture.down(x, 0, time));
+        for (int i = 1; i <= 2; i++) {
+            trace.record(TouchTrace.ACTION_MOVE, time + i * 8, x + distance * i / 2, 0,
+                    gesture.move(x + distance * i / 2, 0, time + i * 8));
+        }
+        trace.record(TouchTrace.ACTION_UP, time + 24, x + distance, 0,
+                gesture.up(x + distance, 0, time + 24));
+    }
+
+}
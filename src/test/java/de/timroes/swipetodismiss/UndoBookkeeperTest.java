@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.DismissList.UndoMode;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UndoBookkeeperTest {
+
+    private final List<String> mLog = new ArrayList<String>();
+
+    @Test
+    public void singleUndoKeepsLatestDismiss() {
+        UndoBookkeeper undos = dismiss(UndoMode.SINGLE_UNDO, "a", "b", "c");
+        assertEquals(Arrays.asList("discard a", "discard b"), mLog);
+        assertEquals(1, undos.size());
+        assertFalse(undos.setCapacity(5));
+
+        undos.undo();
+        assertEquals(Arrays.asList("discard a", "discard b", "undo c"), mLog);
+        assertTrue(undos.isEmpty());
+    }
+
+    @Test
+    public void multiUndoUndoesNewestFirst() {
+        UndoBookkeeper undos = dismiss(UndoMode.MULTI_UNDO, "a", "b", "c");
+        assertFalse(undos.undoesAll());
+        undos.undo();
+        undos.undo();
+        assertEquals(Arrays.asList("undo c", "undo b"), mLog);
+        assertEquals(1, undos.size());
+
+        undos.discardAll();
+        assertEquals(Arrays.asList("undo c", "undo b", "discard a"), mLog);
+        assertTrue(undos.isEmpty());
+    }
+
+    @Test
+    public void collapsedUndoUndoesAllFromNewest() {
+        UndoBookkeeper undos = dismiss(UndoMode.COLLAPSED_UNDO, "a", "b", "c");
+        assertTrue(undos.undoesAll());
+        undos.undo();
+        assertEquals(Arrays.asList("undo c", "undo b", "undo a"), mLog);
+        assertTrue(undos.isEmpty());
+
+        // Nothing left to undo
+        undos.undo();
+        assertEquals(3, mLog.size());
+    }
+
+    @Test
+    public void capacityDiscardsOldest() {
+        UndoBookkeeper undos = dismiss(UndoMode.MULTI_UNDO, "a", "b", "c");
+        assertTrue(undos.setCapacity(2));
+        assertEquals(Arrays.asList("discard a"), mLog);
+
+        undos.beforeDismiss();
+        undos.add(new RecordingUndoable(mLog, "d"));
+        assertEquals(Arrays.asList("discard a", "discard b"), mLog);
+        assertEquals("d", undos.getLast().toString());
+    }
+
+    @Test
+    public void reportsMetrics() {
+        DismissMetrics metrics = new DismissMetrics();
+        UndoBookkeeper undos = new UndoBookkeeper(UndoMode.MULTI_UNDO, new DiscardQueue());
+        undos.setMetricsListener(metrics);
+        undos.add(new RecordingUndoable(mLog, "a"));
+        undos.add(new RecordingUndoable(mLog, "b"));
+        undos.add(new RecordingUndoable(mLog, "c"));
+        undos.undo();
+        undos.discardAll();
+
+        assertEquals(3, metrics.getPeakUndoSize());
+        assertEquals(1, metrics.getUndoCount());
+        assertEquals(2, metrics.getDiscardCount());
+    }
+
+    private UndoBookkeeper dismiss(UndoMode mode, String... names) {
+        UndoBookkeeper undos = new UndoBookkeeper(mode, new DiscardQueue());
+        for (String name : names) {
+            undos.beforeDismiss();
+            undos.add(new RecordingUndoable(mLog, name));
+        }
+        return undos;
+    }
+
+}
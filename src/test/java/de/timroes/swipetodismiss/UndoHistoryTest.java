@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import de.timroes.swipetodismiss.DismissList.Undoable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UndoHistoryTest {
+
+    private final List<String> mLog = new ArrayList<String>();
+
+    @Test
+    public void evictsOldestWhenFull() {
+        UndoHistory history = new UndoHistory(3);
+        Undoable[] items = items(5);
+        for (int i = 0; i < 3; i++) {
+            assertNull(history.add(items[i]));
+        }
+        assertSame(items[0], history.add(items[3]));
+        assertSame(items[1], history.add(items[4]));
+        assertEquals(3, history.size());
+        assertSame(items[2], history.get(0));
+        assertSame(items[4], history.getLast());
+    }
+
+    @Test
+    public void growsWithoutCapacity() {
+        UndoHistory history = new UndoHistory(0);
+        Undoable[] items = items(25);
+        // Wrap the ring before growing it
+        history.add(items[0]);
+        history.add(items[1]);
+        history.removeFirst();
+        history.removeFirst();
+        for (Undoable item : items) {
+            assertNull(history.add(item));
+        }
+        assertEquals(25, history.size());
+        for (int i = 0; i < 25; i++) {
+            assertSame(items[i], history.get(i));
+        }
+    }
+
+    @Test
+    public void removesFromBothEnds() {
+        UndoHistory history = new UndoHistory(0);
+        Undoable[] items = items(4);
+        for (Undoable item : items) {
+            history.add(item);
+        }
+        assertSame(items[3], history.removeLast());
+        assertSame(items[0], history.removeFirst());
+        assertSame(items[1], history.get(0));
+        assertSame(items[2], history.getLast());
+
+        history.clear();
+        assertTrue(history.isEmpty());
+    }
+
+    @Test
+    public void shrinksCapacity() {
+        UndoHistory history = new UndoHistory(0);
+        Undoable[] items = items(5);
+        for (Undoable item : items) {
+            history.add(item);
+        }
+        history.setCapacity(2);
+        assertTrue(history.isOverCapacity());
+        List<Undoable> removed = new ArrayList<Undoable>();
+        while (history.isOverCapacity()) {
+            removed.add(history.removeFirst());
+        }
+        assertEquals(3, removed.size());
+        assertSame(items[0], removed.get(0));
+        assertFalse(history.isOverCapacity());
+        assertSame(items[3], history.add(items[0]));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsInvalidIndex() {
+        UndoHistory history = new UndoHistory(2);
+        history.add(items(1)[0]);
+        history.get(1);
+    }
+
+    private Undoable[] items(int count) {
+        Undoable[] items = new Undoable[count];
+        for (int i = 0; i < count; i++) {
+            items[i] = new RecordingUndoable(mLog, String.valueOf(i));
+        }
+        return items;
+    }
+
+}
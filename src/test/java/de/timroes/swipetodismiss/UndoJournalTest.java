@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 Roman Nurik, Tim Roes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.timroes.swipetodismiss;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 18)
+public class UndoJournalTest {
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final List<String> mLog = new ArrayList<String>();
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = new File(mFolder.getRoot(), "undo.journal");
+    }
+
+    @Test
+    public void replaysDismissesOfEarlierProcess() throws IOException {
+        UndoJournal journal = new UndoJournal(mFile);
+        journal.dismissed(undoable("a", "1"));
+        journal.dismissed(undoable("b", "2"));
+        journal.dismissed(undoable("c", "3"));
+        journal.undone(undoable("b", "2"));
+        journal.discarded(undoable("c", "3"));
+        // The process dies
+        journal.close();
+
+        UndoJournal restarted = new UndoJournal(mFile);
+        assertEquals(Arrays.asList("1"), replay(restarted));
+        assertEquals(Collections.<String>emptyList(), replay(restarted));
+        assertEquals(Collections.<String>emptyList(), replay(new UndoJournal(mFile)));
+    }
+
+    @Test
+    public void keepsDismissesOfThisProcess() throws IOException {
+        UndoJournal journal = new UndoJournal(mFile);
+        journal.dismissed(undoable("a", "1"));
+        journal.close();
+
+        UndoJournal restarted = new UndoJournal(mFile);
+        restarted.dismissed(undoable("b", "2"));
+        assertEquals(Arrays.asList("1"), replay(restarted));
+        restarted.close();
+
+        assertEquals(Arrays.asList("2"), replay(new UndoJournal(mFile)));
+    }
+
+    @Test
+    public void writesRecordsInBackground() throws IOException {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        UndoJournal journal = new UndoJournal(mFile, new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        journal.dismissed(undoable("a", "1"));
+        journal.dismissed(undoable("b", "2"));
+        journal.undone(undoable("a", "1"));
+        assertFalse(mFile.exists());
+        assertEquals(1, tasks.size());
+
+        tasks.remove(0).run();
+        assertTrue(mFile.length() > 0);
+        journal.dismissed(undoable("c", "3"));
+        assertEquals(1, tasks.size());
+
+        // The records are kept even if the process dies before the next write
+        journal.flush();
+        assertEquals(Arrays.asList("2", "3"), replay(new UndoJournal(mFile)));
+    }
+
+    @Test
+    public void startsOverWhenNothingIsOpen() throws IOException {
+        UndoJournal journal = new UndoJournal(mFile);
+        journal.dismissed(undoable("a", "1"));
+        journal.flush();
+        assertTrue(mFile.length() > 0);
+
+        journal.discarded(undoable("a", "1"));
+        journal.flush();
+        assertEquals(0, mFile.length());
+        journal.close();
+    }
+
+    @Test
+    public void ignoresUndoablesWithoutKey() throws IOException {
+        UndoJournal journal = new UndoJournal(mFile);
+        journal.dismissed(undoable("a", null));
+        journal.close();
+
+        assertEquals(Collections.<String>emptyList(), replay(new UndoJournal(mFile)));
+    }
+
+    private RecordingUndoable undoable(String name, String key) {
+        return new RecordingUndoable(mLog, name, key);
+    }
+
+    private static List<String> replay(UndoJournal journal) throws IOException {
+        final List<String> keys = new ArrayList<String>();
+        journal.replay(new UndoJournal.OnReplayListener() {
+            public void onReplayDiscard(String key) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+}